@@ -0,0 +1,58 @@
+package com.anonboard.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+// Builds the indexes declared with @Indexed/@CompoundIndex on every @Document. Spring Data
+// MongoDB 3+ leaves auto-index-creation off, so without this the keyset, claim, TTL and unique
+// indexes exist only as annotations. Runs once the context is up; ensureIndex is a no-op for
+// indexes that already exist, so every instance can run it on start.
+@Component
+@Slf4j
+public class MongoIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate, MongoMappingContext mappingContext) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        int ensured = 0;
+        int failed = 0;
+
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                try {
+                    indexOps.ensureIndex(index);
+                    ensured++;
+                } catch (DataAccessException e) {
+                    // e.g. an index with the same keys but other options, or duplicates blocking a
+                    // unique index; the rest are still built and the app keeps serving
+                    failed++;
+                    log.error("Could not ensure index {} on {}: {}", index.getIndexKeys(),
+                            entity.getCollection(), e.getMessage());
+                }
+            }
+        }
+        log.info("Ensured {} MongoDB indexes ({} failed)", ensured, failed);
+    }
+}
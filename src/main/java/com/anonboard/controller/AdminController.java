@@ -1,17 +1,21 @@
 package com.anonboard.controller;
 
+import com.anonboard.dto.request.MergeTagRequest;
 import com.anonboard.dto.response.ApiResponse;
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.dto.response.ReportResponse;
 import com.anonboard.model.Report;
 import com.anonboard.model.User;
+import com.anonboard.security.UserPrincipal;
 import com.anonboard.service.AdminService;
 import com.anonboard.service.AuthService;
 import com.anonboard.service.ReportService;
+import com.anonboard.service.TagCatalogService;
+import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -24,11 +28,14 @@ public class AdminController {
     private final AdminService adminService;
     private final ReportService reportService;
     private final AuthService authService;
+    private final TagCatalogService tagCatalog;
 
-    public AdminController(AdminService adminService, ReportService reportService, AuthService authService) {
+    public AdminController(AdminService adminService, ReportService reportService, AuthService authService,
+            TagCatalogService tagCatalog) {
         this.adminService = adminService;
         this.reportService = reportService;
         this.authService = authService;
+        this.tagCatalog = tagCatalog;
     }
 
     @GetMapping("/stats")
@@ -47,14 +54,24 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success(reports));
     }
 
+    @GetMapping(value = "/reports", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ReportResponse>>> getReportFeed(
+            @RequestParam(required = false) Report.ReportStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        CursorPage<ReportResponse> reports = reportService.getReportFeed(status, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(reports));
+    }
+
     @PutMapping("/reports/{id}/resolve")
     public ResponseEntity<ApiResponse<Void>> resolveReport(
             @PathVariable String id,
             @RequestParam Report.ReportStatus status,
             @RequestParam(required = false) String notes,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         reportService.resolveReport(id, user.getId(), notes, status);
         return ResponseEntity.ok(ApiResponse.success(null, "Report updated"));
     }
@@ -68,6 +85,15 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success(users));
     }
 
+    @GetMapping(value = "/users", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Map<String, Object>>>> getUserFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        CursorPage<Map<String, Object>> users = adminService.getUserFeed(cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(users));
+    }
+
     @GetMapping("/users/{id}")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getUserDetails(@PathVariable String id) {
         Map<String, Object> identity = adminService.getUserRealIdentity(id);
@@ -77,9 +103,9 @@ public class AdminController {
     @DeleteMapping("/posts/{id}")
     public ResponseEntity<ApiResponse<Void>> removePost(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         adminService.removePost(id, user.getId());
         return ResponseEntity.ok(ApiResponse.success(null, "Post removed"));
     }
@@ -87,9 +113,9 @@ public class AdminController {
     @DeleteMapping("/comments/{id}")
     public ResponseEntity<ApiResponse<Void>> removeComment(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         adminService.removeComment(id, user.getId());
         return ResponseEntity.ok(ApiResponse.success(null, "Comment removed"));
     }
@@ -118,4 +144,11 @@ public class AdminController {
         adminService.updateUserType(id, userType);
         return ResponseEntity.ok(ApiResponse.success(null, "User type updated to " + userType));
     }
+
+    // Makes the source tag an alias of the target and retags its posts
+    @PostMapping("/tags/merge")
+    public ResponseEntity<ApiResponse<Void>> mergeTags(@Valid @RequestBody MergeTagRequest request) {
+        tagCatalog.merge(request.getSource(), request.getTarget());
+        return ResponseEntity.ok(ApiResponse.success(null, "Tag merged"));
+    }
 }
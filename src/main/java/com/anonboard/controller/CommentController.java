@@ -3,9 +3,12 @@ package com.anonboard.controller;
 import com.anonboard.dto.request.CreateCommentRequest;
 import com.anonboard.dto.request.ReportRequest;
 import com.anonboard.dto.request.VoteRequest;
+import com.anonboard.dto.request.VoteStateRequest;
 import com.anonboard.dto.response.ApiResponse;
 import com.anonboard.dto.response.CommentResponse;
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.model.User;
+import com.anonboard.security.UserPrincipal;
 import com.anonboard.service.AuthService;
 import com.anonboard.service.CommentService;
 import com.anonboard.service.ReportService;
@@ -14,15 +17,18 @@ import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
 public class CommentController {
 
+    // Replies that can be inlined under each top-level comment
+    private static final int MAX_INLINE_REPLIES = 10;
+
     private final CommentService commentService;
     private final VoteService voteService;
     private final ReportService reportService;
@@ -36,17 +42,35 @@ public class CommentController {
         this.authService = authService;
     }
 
-    // Get top-level comments only
+    // Get top-level comments; replies=N inlines each one's first N replies
     @GetMapping("/posts/{postId}/comments")
     public ResponseEntity<ApiResponse<Page<CommentResponse>>> getComments(
             @PathVariable String postId,
             @RequestParam(defaultValue = "top") String sort,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @RequestParam(defaultValue = "0") int replies,
+            @AuthenticationPrincipal UserPrincipal principal) {
+
+        User user = authService.getActiveUser(principal);
+        Page<CommentResponse> comments = commentService.getComments(postId, sort, page, size,
+                Math.min(replies, MAX_INLINE_REPLIES), user.getId());
+        return ResponseEntity.ok(ApiResponse.success(comments));
+    }
+
+    // Cursor-paginated variant of the above, used when a cursor parameter is present
+    @GetMapping(value = "/posts/{postId}/comments", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<CommentResponse>>> getCommentFeed(
+            @PathVariable String postId,
+            @RequestParam(defaultValue = "top") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "0") int replies,
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
-        Page<CommentResponse> comments = commentService.getComments(postId, sort, page, size, user.getId());
+        User user = authService.getActiveUser(principal);
+        CursorPage<CommentResponse> comments = commentService.getCommentFeed(postId, sort, cursor, size,
+                Math.min(replies, MAX_INLINE_REPLIES), user.getId());
         return ResponseEntity.ok(ApiResponse.success(comments));
     }
 
@@ -54,20 +78,33 @@ public class CommentController {
     @GetMapping("/comments/{commentId}/replies")
     public ResponseEntity<ApiResponse<List<CommentResponse>>> getReplies(
             @PathVariable String commentId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         List<CommentResponse> replies = commentService.getReplies(commentId, user.getId());
         return ResponseEntity.ok(ApiResponse.success(replies));
     }
 
+    // Cursor-paginated replies, used when a cursor parameter is present (e.g. a repliesCursor)
+    @GetMapping(value = "/comments/{commentId}/replies", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<CommentResponse>>> getReplyFeed(
+            @PathVariable String commentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal UserPrincipal principal) {
+
+        User user = authService.getActiveUser(principal);
+        CursorPage<CommentResponse> replies = commentService.getReplyFeed(commentId, cursor, size, user.getId());
+        return ResponseEntity.ok(ApiResponse.success(replies));
+    }
+
     @PostMapping("/posts/{postId}/comments")
     public ResponseEntity<ApiResponse<CommentResponse>> createComment(
             @PathVariable String postId,
             @Valid @RequestBody CreateCommentRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         CommentResponse comment = commentService.createComment(postId, request, user.getId(), user.getAnonymousName(),
                 user.getAvatar());
         return ResponseEntity.ok(ApiResponse.success(comment, "Comment added successfully"));
@@ -77,9 +114,9 @@ public class CommentController {
     public ResponseEntity<ApiResponse<CommentResponse>> editComment(
             @PathVariable String id,
             @Valid @RequestBody CreateCommentRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         CommentResponse comment = commentService.editComment(id, request, user.getId());
         return ResponseEntity.ok(ApiResponse.success(comment, "Comment updated successfully"));
     }
@@ -87,9 +124,9 @@ public class CommentController {
     @DeleteMapping("/comments/{id}")
     public ResponseEntity<ApiResponse<Void>> deleteComment(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         commentService.deleteComment(id, user.getId());
         return ResponseEntity.ok(ApiResponse.success(null, "Comment deleted successfully"));
     }
@@ -98,9 +135,9 @@ public class CommentController {
     public ResponseEntity<ApiResponse<VoteService.VoteResult>> voteOnComment(
             @PathVariable String id,
             @Valid @RequestBody VoteRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         VoteService.VoteResult result = voteService.voteOnComment(id, request.getVoteType(), user.getId());
         return ResponseEntity.ok(ApiResponse.success(result));
     }
@@ -108,20 +145,31 @@ public class CommentController {
     @DeleteMapping("/comments/{id}/vote")
     public ResponseEntity<ApiResponse<Void>> removeCommentVote(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         voteService.removeCommentVote(id, user.getId());
         return ResponseEntity.ok(ApiResponse.success(null, "Vote removed"));
     }
 
+    // The caller's vote on each listed comment (1, -1, or 0 for none), for re-rendering cached threads
+    @PostMapping("/votes/state")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> getVoteStates(
+            @Valid @RequestBody VoteStateRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
+
+        User user = authService.getActiveUser(principal);
+        Map<String, Integer> votes = voteService.getVoteStates(request.getCommentIds(), user.getId());
+        return ResponseEntity.ok(ApiResponse.success(votes));
+    }
+
     @PostMapping("/comments/{id}/report")
     public ResponseEntity<ApiResponse<Void>> reportComment(
             @PathVariable String id,
             @Valid @RequestBody ReportRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         reportService.reportComment(id, request, user.getId());
         return ResponseEntity.ok(ApiResponse.success(null, "Report submitted successfully"));
     }
@@ -4,9 +4,13 @@ import com.anonboard.model.Job;
 import com.anonboard.model.JobComment;
 import com.anonboard.model.User;
 import com.anonboard.repository.JobCommentRepository;
-import com.anonboard.repository.UserRepository;
+import com.anonboard.security.UserPrincipal;
+import com.anonboard.service.ContentVersionService;
 import com.anonboard.service.JobService;
+import com.anonboard.util.ConditionalRequests;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -25,21 +29,32 @@ public class JobController {
 
     private final JobService jobService;
     private final JobCommentRepository jobCommentRepository;
-    private final UserRepository userRepository;
     private final com.anonboard.service.NotificationService notificationService;
+    private final ContentVersionService contentVersions;
 
     private static final int EDIT_WINDOW_MINUTES = 5;
 
     // ==================== JOB ENDPOINTS ====================
 
+    // Validators are taken before the read, so a change made during it only costs one extra 200
     @GetMapping("/jobs")
-    public ResponseEntity<List<Job>> getJobs(@RequestParam(required = false) Job.JobType type) {
-        return ResponseEntity.ok(jobService.getActiveJobs(type));
+    public ResponseEntity<List<Job>> getJobs(@RequestParam(required = false) Job.JobType type,
+            HttpServletRequest request) {
+        String etag = contentVersions.jobsEtag(type != null ? type.name() : null);
+        Instant lastModified = contentVersions.getJobsLastModified();
+        if (ConditionalRequests.notModified(request, etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(lastModified).build();
+        }
+        return ResponseEntity.ok().eTag(etag).lastModified(lastModified).body(jobService.getActiveJobs(type));
     }
 
     @GetMapping("/jobs/{id}")
-    public ResponseEntity<Job> getJob(@PathVariable String id) {
-        return ResponseEntity.ok(jobService.getJobById(id));
+    public ResponseEntity<Job> getJob(@PathVariable String id, HttpServletRequest request) {
+        String etag = contentVersions.jobEtag(id);
+        if (ConditionalRequests.notModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(jobService.getJobById(id));
     }
 
     // ==================== JOB COMMENT ENDPOINTS ====================
@@ -180,9 +195,10 @@ public class JobController {
 
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (auth != null && auth.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getUser();
+        }
+        throw new RuntimeException("User not found");
     }
 
     private Map<String, Object> enrichComment(JobComment comment, User currentUser) {
@@ -1,8 +1,8 @@
 package com.anonboard.controller;
 
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.model.Notification;
-import com.anonboard.model.User;
-import com.anonboard.repository.UserRepository;
+import com.anonboard.security.UserPrincipal;
 import com.anonboard.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,7 +18,6 @@ import java.util.List;
 public class NotificationController {
 
     private final NotificationService notificationService;
-    private final UserRepository userRepository;
 
     @GetMapping
     public ResponseEntity<List<Notification>> getNotifications(
@@ -27,6 +26,13 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.getUserNotifications(getCurrentUserId(), page, size));
     }
 
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<Notification>> getNotificationFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(notificationService.getNotificationFeed(getCurrentUserId(), cursor, size));
+    }
+
     @GetMapping("/unread-count")
     public ResponseEntity<Long> getUnreadCount() {
         return ResponseEntity.ok(notificationService.getUnreadCount(getCurrentUserId()));
@@ -40,9 +46,9 @@ public class NotificationController {
 
     private String getCurrentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .map(User::getId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (auth != null && auth.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        throw new RuntimeException("User not found");
     }
 }
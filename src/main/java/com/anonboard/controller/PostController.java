@@ -4,38 +4,52 @@ import com.anonboard.dto.request.CreatePostRequest;
 import com.anonboard.dto.request.EditPostRequest;
 import com.anonboard.dto.request.ReportRequest;
 import com.anonboard.dto.response.ApiResponse;
+import com.anonboard.dto.response.CursorPage;
+import com.anonboard.dto.response.ImageStatusResponse;
 import com.anonboard.dto.response.PostResponse;
+import com.anonboard.model.Post;
 import com.anonboard.model.User;
+import com.anonboard.security.UserPrincipal;
 import com.anonboard.service.AuthService;
-import com.anonboard.service.ImageService;
+import com.anonboard.service.ContentVersionService;
+import com.anonboard.service.ImageUploadWorker;
 import com.anonboard.service.PostService;
 import com.anonboard.service.ReportService;
+import com.anonboard.util.ConditionalRequests;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/api/posts")
 public class PostController {
 
+    private static final int MAX_IMAGE_STATUS_WAIT_SECONDS = 30;
+
     private final PostService postService;
     private final ReportService reportService;
     private final AuthService authService;
-    private final ImageService imageService;
+    private final ImageUploadWorker imageUploads;
+    private final ContentVersionService contentVersions;
     private final ObjectMapper objectMapper;
 
     public PostController(PostService postService, ReportService reportService,
-            AuthService authService, ImageService imageService) {
+            AuthService authService, ImageUploadWorker imageUploads, ContentVersionService contentVersions) {
         this.postService = postService;
         this.reportService = reportService;
         this.authService = authService;
-        this.imageService = imageService;
+        this.imageUploads = imageUploads;
+        this.contentVersions = contentVersions;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -45,22 +59,54 @@ public class PostController {
             @RequestParam(defaultValue = "latest") String sort,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request) {
+
+        User user = authService.getActiveUser(principal);
+        String etag = contentVersions.feedEtag(user.getId(), request.getQueryString());
+        if (ConditionalRequests.notModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
         Page<PostResponse> posts = postService.getPosts(tag, sort, page, size, user.getId());
-        return ResponseEntity.ok(ApiResponse.success(posts));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(posts));
+    }
+
+    // Infinite scroll: requests carrying a cursor parameter (empty for the first page) are keyset-paginated
+    @GetMapping(params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<PostResponse>>> getPostFeed(
+            @RequestParam(required = false) String tag,
+            @RequestParam(defaultValue = "latest") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request) {
+
+        User user = authService.getActiveUser(principal);
+        String etag = contentVersions.feedEtag(user.getId(), request.getQueryString());
+        if (ConditionalRequests.notModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        CursorPage<PostResponse> posts = postService.getPostFeed(tag, sort, cursor, size, user.getId());
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(posts));
     }
 
     @GetMapping("/trending")
     public ResponseEntity<ApiResponse<Page<PostResponse>>> getTrendingPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request) {
+
+        User user = authService.getActiveUser(principal);
+        String etag = contentVersions.feedEtag(user.getId(), "trending&" + request.getQueryString());
+        if (ConditionalRequests.notModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
         Page<PostResponse> posts = postService.getTrendingPosts(page, size, user.getId());
-        return ResponseEntity.ok(ApiResponse.success(posts));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(posts));
     }
 
     @GetMapping("/search")
@@ -68,52 +114,79 @@ public class PostController {
             @RequestParam String q,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         Page<PostResponse> posts = postService.searchPosts(q, page, size, user.getId());
         return ResponseEntity.ok(ApiResponse.success(posts));
     }
 
+    // Feed validators are taken before the read; a post's is only known once this instance has
+    // read it, so the first request after a change is always served in full
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<PostResponse>> getPost(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request) {
+
+        User user = authService.getActiveUser(principal);
+        String etag = contentVersions.postEtag(id, user.getId());
+        if (ConditionalRequests.notModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
         PostResponse post = postService.getPostById(id, user.getId());
-        return ResponseEntity.ok(ApiResponse.success(post));
+        return ResponseEntity.ok().eTag(contentVersions.postEtag(id, user.getId())).body(ApiResponse.success(post));
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ApiResponse<PostResponse>> createPost(
             @RequestPart("post") String postJson,
             @RequestPart(value = "image", required = false) MultipartFile image,
-            @AuthenticationPrincipal UserDetails userDetails) throws Exception {
+            @AuthenticationPrincipal UserPrincipal principal) throws Exception {
 
         CreatePostRequest request = objectMapper.readValue(postJson, CreatePostRequest.class);
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
+
+        // The image is only staged here; the post is saved as PENDING and uploaded in the background
+        ImageUploadWorker.StagedImage staged = image != null && !image.isEmpty() ? imageUploads.stage(image) : null;
 
-        String imageUrl = request.getImageUrl();
-        if (image != null && !image.isEmpty()) {
-            String uploadedUrl = imageService.uploadImage(image);
-            if (uploadedUrl != null) {
-                imageUrl = uploadedUrl;
+        PostResponse post;
+        try {
+            post = postService.createPost(request, staged, user.getId(), user.getAnonymousName(), user.getAvatar());
+        } catch (RuntimeException e) {
+            if (staged != null) {
+                imageUploads.discard(staged);
             }
+            throw e;
         }
-
-        PostResponse post = postService.createPost(request, imageUrl, user.getId(), user.getAnonymousName(),
-                user.getAvatar());
         return ResponseEntity.ok(ApiResponse.success(post, "Post created successfully"));
     }
 
+    // Readiness of an uploaded image. With wait > 0 a PENDING request is held until the upload
+    // finishes or the wait runs out, so clients can long-poll instead of polling in a loop.
+    @GetMapping("/{id}/image-status")
+    public CompletableFuture<ResponseEntity<ApiResponse<ImageStatusResponse>>> getImageStatus(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") int wait) {
+
+        ImageStatusResponse status = imageUploads.getStatus(id);
+        if (wait <= 0 || !Post.ImageStatus.PENDING.name().equals(status.getStatus())) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(ApiResponse.success(status)));
+        }
+
+        return imageUploads.awaitUpload(id)
+                .completeOnTimeout(null, Math.min(wait, MAX_IMAGE_STATUS_WAIT_SECONDS), TimeUnit.SECONDS)
+                .thenApply(done -> ResponseEntity.ok(ApiResponse.success(imageUploads.getStatus(id))));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<PostResponse>> editPost(
             @PathVariable String id,
             @Valid @RequestBody EditPostRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         PostResponse post = postService.editPost(id, request, user.getId());
         return ResponseEntity.ok(ApiResponse.success(post, "Post updated successfully"));
     }
@@ -121,9 +194,9 @@ public class PostController {
     @DeleteMapping("/{id}")
     public ResponseEntity<ApiResponse<Void>> deletePost(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         postService.deletePost(id, user.getId());
         return ResponseEntity.ok(ApiResponse.success(null, "Post deleted successfully"));
     }
@@ -132,9 +205,9 @@ public class PostController {
     public ResponseEntity<ApiResponse<Page<PostResponse>>> getMyPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         Page<PostResponse> posts = postService.getMyPosts(user.getId(), page, size);
         return ResponseEntity.ok(ApiResponse.success(posts));
     }
@@ -149,9 +222,9 @@ public class PostController {
     public ResponseEntity<ApiResponse<Void>> reportPost(
             @PathVariable String id,
             @Valid @RequestBody ReportRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        User user = authService.getUserByEmail(userDetails.getUsername());
+        User user = authService.getActiveUser(principal);
         reportService.reportPost(id, request, user.getId());
         return ResponseEntity.ok(ApiResponse.success(null, "Report submitted successfully"));
     }
@@ -0,0 +1,56 @@
+package com.anonboard.controller;
+
+import com.anonboard.dto.response.ApiResponse;
+import com.anonboard.dto.response.HotTagResponse;
+import com.anonboard.dto.response.TagResponse;
+import com.anonboard.dto.response.TagSuggestions;
+import com.anonboard.service.HotTagService;
+import com.anonboard.service.TagCatalogService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/tags")
+public class TagController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final TagCatalogService tagCatalog;
+    private final HotTagService hotTags;
+
+    public TagController(TagCatalogService tagCatalog, HotTagService hotTags) {
+        this.tagCatalog = tagCatalog;
+        this.hotTags = hotTags;
+    }
+
+    // Most used tags
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<TagResponse>>> getPopularTags(
+            @RequestParam(defaultValue = "20") int limit) {
+
+        List<TagResponse> tags = tagCatalog.getPopularTags(Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(ApiResponse.success(tags));
+    }
+
+    // Typeahead: tags starting with q, with a "did you mean" when nothing matches
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<TagSuggestions>> suggestTags(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        TagSuggestions suggestions = tagCatalog.suggest(q, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(ApiResponse.success(suggestions));
+    }
+
+    // Fastest-rising tags over the window (1h, 24h or 7d) compared with the window before
+    @GetMapping("/hot")
+    public ResponseEntity<ApiResponse<List<HotTagResponse>>> getHotTags(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<HotTagResponse> tags = hotTags.getHotTags(window, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(ApiResponse.success(tags));
+    }
+}
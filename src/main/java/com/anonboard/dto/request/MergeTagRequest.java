@@ -0,0 +1,14 @@
+package com.anonboard.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class MergeTagRequest {
+
+    @NotBlank(message = "Source tag is required")
+    private String source;
+
+    @NotBlank(message = "Target tag is required")
+    private String target;
+}
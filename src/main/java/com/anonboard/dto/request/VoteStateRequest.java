@@ -0,0 +1,15 @@
+package com.anonboard.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class VoteStateRequest {
+
+    @NotNull(message = "Comment ids are required")
+    @Size(max = 500, message = "At most 500 comment ids per request")
+    private List<String> commentIds;
+}
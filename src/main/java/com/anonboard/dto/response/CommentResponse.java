@@ -37,5 +37,8 @@ public class CommentResponse {
 
     private Instant createdAt;
 
+    // First replies, when the list was requested with replies=N; repliesCursor continues them on
+    // /api/comments/{id}/replies?cursor= and is null when every reply is already included
     private List<CommentResponse> replies;
+    private String repliesCursor;
 }
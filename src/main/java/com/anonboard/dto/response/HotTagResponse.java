@@ -0,0 +1,18 @@
+package com.anonboard.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotTagResponse {
+    private String name;
+
+    // Weighted activity (posts, comments, views) in the window and in the window before it
+    private long activity;
+    private long previousActivity;
+}
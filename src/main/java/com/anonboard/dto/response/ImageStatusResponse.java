@@ -0,0 +1,18 @@
+package com.anonboard.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageStatusResponse {
+    private String postId;
+    private String status;
+    private String imageUrl;
+    private String feedImageUrl;
+    private String thumbnailUrl;
+}
@@ -18,8 +18,16 @@ public class PostResponse {
     private String authorAnonymousName;
     private String authorAvatar;
     private String title;
+
+    // Detail view carries the full content; lists carry only the excerpt
     private String content;
+    private String excerpt;
     private String imageUrl;
+    // Downscaled variants of an uploaded image; feed cards should use these, not imageUrl
+    private String feedImageUrl;
+    private String thumbnailUrl;
+    // PENDING while an uploaded image is still being processed; poll /api/posts/{id}/image-status
+    private String imageStatus;
     private List<String> tags;
     private int viewCount;
     private int shareCount;
@@ -38,4 +46,8 @@ public class PostResponse {
 
     private Instant createdAt;
     private Instant updatedAt;
+
+    // Search results only: excerpt around the best match and [start, end) offsets of matched words
+    private String snippet;
+    private List<int[]> highlights;
 }
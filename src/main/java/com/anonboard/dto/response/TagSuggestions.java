@@ -0,0 +1,19 @@
+package com.anonboard.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagSuggestions {
+    private List<TagResponse> tags;
+
+    // Closest known tag when the input looks like a typo, otherwise null
+    private String didYouMean;
+}
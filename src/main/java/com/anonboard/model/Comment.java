@@ -22,7 +22,12 @@ import java.time.Instant;
 @CompoundIndexes({
         @CompoundIndex(name = "post_created", def = "{'postId': 1, 'createdAt': -1}"),
         @CompoundIndex(name = "post_votes", def = "{'postId': 1, 'voteCount': -1}"),
-        @CompoundIndex(name = "parent_created", def = "{'parentId': 1, 'createdAt': -1}")
+        @CompoundIndex(name = "parent_created", def = "{'parentId': 1, 'createdAt': -1}"),
+        // Keyset pagination indexes for top-level comments
+        @CompoundIndex(name = "top_level_votes", def = "{'postId': 1, 'parentId': 1, 'isDeleted': 1, 'voteCount': -1, '_id': -1}"),
+        @CompoundIndex(name = "top_level_created", def = "{'postId': 1, 'parentId': 1, 'isDeleted': 1, 'createdAt': -1, '_id': -1}"),
+        // Replies oldest first: reply previews and keyset pages of one parent's replies
+        @CompoundIndex(name = "reply_feed", def = "{'parentId': 1, 'isDeleted': 1, 'createdAt': 1, '_id': 1}")
 })
 public class Comment {
 
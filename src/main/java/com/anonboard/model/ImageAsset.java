@@ -0,0 +1,41 @@
+package com.anonboard.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Processed variants of one uploaded image, keyed by the SHA-256 of the uploaded bytes so
+// the same file uploaded again reuses them instead of being decoded and stored twice
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "image_assets")
+public class ImageAsset {
+
+    // Lowercase hex SHA-256 of the original file
+    @Id
+    private String hash;
+
+    // Metadata-stripped image bounded to the full size (animated GIFs are kept as uploaded)
+    private String imageUrl;
+
+    private String feedImageUrl;
+
+    private String thumbnailUrl;
+
+    // Dimensions after orientation was applied
+    private int width;
+
+    private int height;
+
+    // Decoder format name, e.g. "jpeg", "png", "gif", "webp"
+    private String format;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,59 @@
+package com.anonboard.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Outbox entry drained by EmailOutboxWorker
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "email_outbox")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+})
+public class OutboundEmail {
+
+    @Id
+    private String id;
+
+    private String to;
+
+    private String subject;
+
+    private String htmlBody;
+
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Builder.Default
+    private int attempts = 0;
+
+    private Instant nextAttemptAt;
+
+    // Lease held by the worker currently sending this email
+    private Instant lockedUntil;
+
+    private String lastError;
+
+    @CreatedDate
+    private Instant createdAt;
+
+    // Sent emails are removed by Mongo after a week
+    @Indexed(expireAfterSeconds = 604800)
+    private Instant sentAt;
+
+    public enum Status {
+        PENDING, SENDING, SENT, FAILED
+    }
+}
@@ -23,7 +23,13 @@ import java.util.List;
 @Document(collection = "posts")
 @CompoundIndexes({
         @CompoundIndex(name = "tags_created", def = "{'tags': 1, 'createdAt': -1}"),
-        @CompoundIndex(name = "trending", def = "{'viewCount': -1, 'shareCount': -1}")
+        // Keyset pagination indexes: (filter, sortKey, _id)
+        @CompoundIndex(name = "feed_latest", def = "{'isDeleted': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "feed_top", def = "{'isDeleted': 1, 'viewCount': -1, '_id': -1}"),
+        @CompoundIndex(name = "tag_feed_latest", def = "{'tags': 1, 'isDeleted': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "tag_feed_top", def = "{'tags': 1, 'isDeleted': 1, 'viewCount': -1, '_id': -1}"),
+        @CompoundIndex(name = "feed_hot", def = "{'isDeleted': 1, 'hotScore': -1, '_id': -1}"),
+        @CompoundIndex(name = "tag_feed_hot", def = "{'tags': 1, 'isDeleted': 1, 'hotScore': -1, '_id': -1}")
 })
 public class Post {
 
@@ -43,6 +49,20 @@ public class Post {
 
     private String imageUrl;
 
+    // Bounded variants for feed cards and thumbnails; null for link images and older uploads
+    private String feedImageUrl;
+
+    private String thumbnailUrl;
+
+    // Null for posts without an uploaded image; PENDING until the background upload finishes
+    private ImageStatus imageStatus;
+
+    // Instance running the background upload and until when its claim holds; renewed while the
+    // upload runs, so another instance only takes over a PENDING upload once its owner is gone
+    private String imageOwner;
+
+    private Instant imageLeaseUntil;
+
     @Indexed
     @Builder.Default
     private List<String> tags = new ArrayList<>();
@@ -58,6 +78,10 @@ public class Post {
     @Builder.Default
     private int commentCount = 0;
 
+    // Time-decayed trending score, maintained in memory by TrendingService and persisted periodically
+    @Builder.Default
+    private double hotScore = 0;
+
     @Builder.Default
     private boolean isEdited = false;
 
@@ -70,6 +94,12 @@ public class Post {
     @Indexed
     private Instant createdAt;
 
+    // Indexed for the search index catch-up scan
     @LastModifiedDate
+    @Indexed
     private Instant updatedAt;
+
+    public enum ImageStatus {
+        PENDING, READY, FAILED
+    }
 }
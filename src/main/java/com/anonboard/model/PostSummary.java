@@ -0,0 +1,122 @@
+package com.anonboard.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read model for feed cards: a post without its body. Loaded from the posts collection with a
+// field projection, so the full content is never decoded; excerpt is cut server-side.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostSummary {
+
+    private static final String ELLIPSIS = "…";
+
+    @Id
+    private String id;
+
+    private String authorId;
+
+    private String authorAnonymousName;
+
+    private String authorAvatar;
+
+    private String title;
+
+    // First excerpt-length code points of the content, trimmed to a word boundary
+    private String excerpt;
+
+    // Length of the full content in code points
+    private int contentLength;
+
+    private String imageUrl;
+
+    private String feedImageUrl;
+
+    private String thumbnailUrl;
+
+    private Post.ImageStatus imageStatus;
+
+    @Builder.Default
+    private List<String> tags = new ArrayList<>();
+
+    private int viewCount;
+
+    private int shareCount;
+
+    private int commentCount;
+
+    private double hotScore;
+
+    private boolean isEdited;
+
+    private Instant editableUntil;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    public static PostSummary from(Post post, int excerptLength) {
+        String content = post.getContent() != null ? post.getContent() : "";
+        int length = content.codePointCount(0, content.length());
+
+        return PostSummary.builder()
+                .id(post.getId())
+                .authorId(post.getAuthorId())
+                .authorAnonymousName(post.getAuthorAnonymousName())
+                .authorAvatar(post.getAuthorAvatar())
+                .title(post.getTitle())
+                .excerpt(excerpt(content, length, excerptLength))
+                .contentLength(length)
+                .imageUrl(post.getImageUrl())
+                .feedImageUrl(post.getFeedImageUrl())
+                .thumbnailUrl(post.getThumbnailUrl())
+                .imageStatus(post.getImageStatus())
+                .tags(post.getTags())
+                .viewCount(post.getViewCount())
+                .shareCount(post.getShareCount())
+                .commentCount(post.getCommentCount())
+                .hotScore(post.getHotScore())
+                .isEdited(post.isEdited())
+                .editableUntil(post.getEditableUntil())
+                .createdAt(post.getCreatedAt())
+                .updatedAt(post.getUpdatedAt())
+                .build();
+    }
+
+    // Finishes a raw prefix of the content, of any length: short posts are returned whole, longer
+    // ones are cut to excerptLength code points, then back to the last word boundary (unless that
+    // loses too much) and marked with an ellipsis
+    public static String excerpt(String prefix, int contentLength, int excerptLength) {
+        if (prefix == null) {
+            return "";
+        }
+        if (contentLength <= excerptLength) {
+            return prefix;
+        }
+        if (prefix.codePointCount(0, prefix.length()) > excerptLength) {
+            prefix = prefix.substring(0, prefix.offsetByCodePoints(0, excerptLength));
+        }
+
+        int end = prefix.length();
+        int boundary = end;
+        while (boundary > 0 && !Character.isWhitespace(prefix.charAt(boundary - 1))) {
+            boundary--;
+        }
+        if (boundary > end * 4 / 5) {
+            end = boundary;
+        }
+        while (end > 0 && Character.isWhitespace(prefix.charAt(end - 1))) {
+            end--;
+        }
+        return prefix.substring(0, end) + ELLIPSIS;
+    }
+}
@@ -0,0 +1,42 @@
+package com.anonboard.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Unique viewers of one post, stored as a serialized RoaringBitmap of viewer ordinals or,
+// for very hot posts, as HyperLogLog registers
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "post_view_buckets")
+public class PostViewBucket {
+
+    @Id
+    private String postId;
+
+    private Encoding encoding;
+
+    private byte[] data;
+
+    // Unique viewers (exact for BITMAP, estimated for HLL)
+    private long viewers;
+
+    // Views already added to the post's viewCount; lets HLL estimates feed the counter incrementally
+    private long reported;
+
+    private Instant updatedAt;
+
+    // Bumped on every write; instances write conditionally on it and merge on a mismatch
+    private long version;
+
+    public enum Encoding {
+        BITMAP, HLL
+    }
+}
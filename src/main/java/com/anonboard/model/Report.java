@@ -20,7 +20,9 @@ import java.time.Instant;
 @AllArgsConstructor
 @Document(collection = "reports")
 @CompoundIndexes({
-        @CompoundIndex(name = "status_created", def = "{'status': 1, 'createdAt': -1}")
+        @CompoundIndex(name = "status_created", def = "{'status': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "status_created_id", def = "{'status': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "created_id", def = "{'createdAt': -1, '_id': -1}")
 })
 public class Report {
 
@@ -0,0 +1,33 @@
+package com.anonboard.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "tags")
+public class Tag {
+
+    // Normalized tag name
+    @Id
+    private String name;
+
+    // Set when this name is an alias: posts and lookups use the canonical tag instead
+    private String canonical;
+
+    // Non-deleted posts carrying this tag
+    @Builder.Default
+    private long postCount = 0;
+
+    @Indexed
+    private Instant updatedAt;
+}
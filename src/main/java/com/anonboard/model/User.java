@@ -13,7 +13,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.Instant;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "users")
@@ -47,15 +47,23 @@ public class User {
 
     private String banReason;
 
+    // Expired bans are lifted in bulk by BanExpirySweeper
+    @Indexed(sparse = true)
     private Instant bannedUntil;
 
     @Builder.Default
     private int totalPosts = 0;
 
+    // Bumped whenever a change must invalidate previously issued tokens (ban/unban)
+    @Builder.Default
+    private long securityEpoch = 0;
+
     @CreatedDate
     private Instant createdAt;
 
+    // Polled by TokenRevocationRegistry for epochs bumped on other instances
     @LastModifiedDate
+    @Indexed
     private Instant updatedAt;
 
     public enum Role {
@@ -69,4 +77,9 @@ public class User {
     public boolean isPremium() {
         return userType == UserType.PREMIUM;
     }
+
+    // A ban whose end date has passed no longer applies, even before the sweeper clears it
+    public boolean isCurrentlyBanned() {
+        return isBanned && (bannedUntil == null || Instant.now().isBefore(bannedUntil));
+    }
 }
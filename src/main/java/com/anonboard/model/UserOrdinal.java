@@ -0,0 +1,24 @@
+package com.anonboard.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Dense integer assigned to each user, so per-post viewer sets can be stored as bitmaps
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "user_ordinals")
+public class UserOrdinal {
+
+    @Id
+    private String userId;
+
+    @Indexed(unique = true)
+    private int ordinal;
+}
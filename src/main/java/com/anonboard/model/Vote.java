@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -28,11 +29,15 @@ public class Vote {
 
     private String targetId;
 
-    private int voteType; // 1 = upvote, -1 = downvote
+    private int voteType; // 1 = upvote, -1 = downvote, 0 = removed (kept so toggling is one upsert)
 
     @CreatedDate
     private Instant createdAt;
 
+    // Last toggle; VoteReconciler rechecks the counts of recently voted comments
+    @Indexed
+    private Instant updatedAt;
+
     public enum TargetType {
         POST, COMMENT
     }
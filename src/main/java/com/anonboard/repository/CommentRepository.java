@@ -9,6 +9,7 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
@@ -31,6 +32,15 @@ public interface CommentRepository extends MongoRepository<Comment, String> {
     @Update("{ '$inc': { 'replyCount': ?1 } }")
     void incrementReplyCount(String commentId, int delta);
 
+    // Edits and deletes set only their own fields, so vote counts flushed since the read stay
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'content': ?1, 'isEdited': true, 'updatedAt': ?2 } }")
+    void updateContent(String commentId, String content, Instant updatedAt);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'isDeleted': true, 'updatedAt': ?1 } }")
+    void markDeleted(String commentId, Instant updatedAt);
+
     // Count non-deleted comments
     long countByIsDeletedFalse();
 }
@@ -0,0 +1,76 @@
+package com.anonboard.repository;
+
+import com.anonboard.model.Comment;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reply previews for a page of top-level comments. One aggregation starts from the parents and
+// $lookups each one's oldest live replies with a $limit, so every parent costs a bounded range
+// scan of the reply_feed index however many replies it has.
+@Repository
+public class CommentThreadRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    public CommentThreadRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Parent id -> up to limit replies, oldest first; parents without live replies are absent
+    public Map<String, List<Comment>> findFirstReplies(Collection<String> parentIds, int limit) {
+        Map<String, List<Comment>> replies = new HashMap<>();
+        if (parentIds.isEmpty() || limit <= 0) {
+            return replies;
+        }
+
+        List<Object> ids = new ArrayList<>();
+        for (String id : parentIds) {
+            ids.add(ObjectId.isValid(id) ? new ObjectId(id) : id);
+        }
+        String collection = mongoTemplate.getCollectionName(Comment.class);
+
+        // parentId is stored as a string, so the join key is the parent's _id as a string
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("$expr", new Document("$eq", List.of("$parentId", "$$parent")))
+                        .append("isDeleted", false)),
+                new Document("$sort", new Document("createdAt", 1).append("_id", 1)),
+                new Document("$limit", limit));
+        AggregationOperation lookup = context -> new Document("$lookup", new Document("from", collection)
+                .append("let", new Document("parent", new Document("$toString", "$_id")))
+                .append("pipeline", pipeline)
+                .append("as", "replies"));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                context -> new Document("$match", new Document("_id", new Document("$in", ids))),
+                context -> new Document("$project", new Document("_id", 1)),
+                lookup);
+
+        for (ReplyPreview preview : mongoTemplate.aggregate(aggregation, collection, ReplyPreview.class)) {
+            if (preview.getReplies() != null && !preview.getReplies().isEmpty()) {
+                replies.put(preview.getId(), preview.getReplies());
+            }
+        }
+        return replies;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class ReplyPreview {
+        @Id
+        private String id;
+        private List<Comment> replies;
+    }
+}
@@ -0,0 +1,110 @@
+package com.anonboard.repository;
+
+import com.anonboard.dto.response.CursorPage;
+import com.anonboard.util.PageCursor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// Keyset (seek) pagination over (sortField, _id). Each page is a range scan that starts
+// where the previous one stopped, so page 500 costs the same as page 1 and no count runs.
+@Component
+public class KeysetPager {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final MongoTemplate mongoTemplate;
+
+    public KeysetPager(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public <T> CursorPage<T> page(Criteria filter, String sortField, Sort.Direction direction, String cursor,
+            int size, Class<T> type, Function<T, Object> sortValueOf, Function<T, String> idOf) {
+        return page(filter, sortField, direction, cursor, size, type, mongoTemplate.getCollectionName(type),
+                query -> query, sortValueOf, idOf);
+    }
+
+    // Variant for read models mapped from another entity's collection; projection shapes the query
+    public <T> CursorPage<T> page(Criteria filter, String sortField, Sort.Direction direction, String cursor,
+            int size, Class<T> type, String collection, UnaryOperator<Query> projection,
+            Function<T, Object> sortValueOf, Function<T, String> idOf) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Query query = new Query();
+        if (StringUtils.hasText(cursor)) {
+            query.addCriteria(new Criteria().andOperator(filter, after(PageCursor.decode(cursor), sortField, direction)));
+        } else {
+            query.addCriteria(filter);
+        }
+        query.with(Sort.by(direction, sortField).and(Sort.by(direction, "_id")));
+        query.limit(limit + 1);
+
+        List<T> results = mongoTemplate.find(projection.apply(query), type, collection);
+        boolean hasNext = results.size() > limit;
+        if (hasNext) {
+            results = results.subList(0, limit);
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            T last = results.get(results.size() - 1);
+            nextCursor = new PageCursor(sortValueOf.apply(last), idOf.apply(last)).encode();
+        }
+
+        return new CursorPage<>(results, nextCursor, hasNext);
+    }
+
+    public <T> CursorPage<T> pageById(Criteria filter, Sort.Direction direction, String cursor, int size,
+            Class<T> type, Function<T, String> idOf) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Query query = filter != null ? new Query(filter) : new Query();
+        if (StringUtils.hasText(cursor)) {
+            Object id = toId(PageCursor.decode(cursor).id());
+            query.addCriteria(direction == Sort.Direction.DESC
+                    ? Criteria.where("_id").lt(id)
+                    : Criteria.where("_id").gt(id));
+        }
+        query.with(Sort.by(direction, "_id"));
+        query.limit(limit + 1);
+
+        List<T> results = mongoTemplate.find(query, type);
+        boolean hasNext = results.size() > limit;
+        if (hasNext) {
+            results = results.subList(0, limit);
+        }
+
+        String nextCursor = hasNext
+                ? new PageCursor(null, idOf.apply(results.get(results.size() - 1))).encode()
+                : null;
+        return new CursorPage<>(results, nextCursor, hasNext);
+    }
+
+    // (sortField, _id) strictly after the cursor in the given direction
+    private Criteria after(PageCursor cursor, String sortField, Sort.Direction direction) {
+        Object id = toId(cursor.id());
+        Object value = cursor.sortValue();
+
+        if (direction == Sort.Direction.DESC) {
+            return new Criteria().orOperator(
+                    Criteria.where(sortField).lt(value),
+                    new Criteria().andOperator(Criteria.where(sortField).is(value), Criteria.where("_id").lt(id)));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(sortField).gt(value),
+                new Criteria().andOperator(Criteria.where(sortField).is(value), Criteria.where("_id").gt(id)));
+    }
+
+    private static Object toId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
@@ -0,0 +1,11 @@
+package com.anonboard.repository;
+
+import com.anonboard.model.OutboundEmail;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboundEmailRepository extends MongoRepository<OutboundEmail, String> {
+
+    long countByStatus(OutboundEmail.Status status);
+}
@@ -0,0 +1,99 @@
+package com.anonboard.repository;
+
+import com.anonboard.dto.response.CursorPage;
+import com.anonboard.model.Post;
+import com.anonboard.model.PostSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoExpression;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Feed reads of posts as PostSummary. Every query projects the card fields plus a prefix of the
+// content cut by Mongo ($substrCP), so a long post body is never sent over the wire or decoded.
+@Repository
+public class PostSummaryRepository {
+
+    private static final String[] SUMMARY_FIELDS = {
+            "authorId", "authorAnonymousName", "authorAvatar", "title", "imageUrl", "feedImageUrl",
+            "thumbnailUrl", "imageStatus", "tags", "viewCount",
+            "shareCount", "commentCount", "hotScore", "isEdited", "editableUntil", "createdAt", "updatedAt"
+    };
+
+    private final MongoTemplate mongoTemplate;
+    private final KeysetPager keysetPager;
+    private final int excerptLength;
+
+    public PostSummaryRepository(MongoTemplate mongoTemplate, KeysetPager keysetPager,
+            @Value("${app.post.excerpt-length:280}") int excerptLength) {
+        this.mongoTemplate = mongoTemplate;
+        this.keysetPager = keysetPager;
+        this.excerptLength = excerptLength;
+    }
+
+    public int getExcerptLength() {
+        return excerptLength;
+    }
+
+    public Page<PostSummary> findPage(Criteria filter, Sort sort, Pageable pageable) {
+        Query query = project(new Query(filter), excerptLength).with(sort).with(pageable);
+        List<PostSummary> content = finishAll(mongoTemplate.find(query, PostSummary.class, collection()));
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> mongoTemplate.count(new Query(filter), Post.class));
+    }
+
+    public CursorPage<PostSummary> findFeed(Criteria filter, String sortField, String cursor, int size,
+            Function<PostSummary, Object> sortValueOf) {
+        return keysetPager.page(filter, sortField, Sort.Direction.DESC, cursor, size, PostSummary.class,
+                collection(), query -> project(query, excerptLength), sortValueOf, PostSummary::getId)
+                .map(this::finish);
+    }
+
+    // Live posts by id with a longer raw prefix of the content, for callers that cut their own
+    // excerpt (search snippets); the prefix is left in excerpt unfinished
+    public List<PostSummary> findAllById(Collection<String> ids, int prefixLength) {
+        Query query = project(new Query(Criteria.where("_id").in(ids).and("isDeleted").is(false)), prefixLength);
+        return mongoTemplate.find(query, PostSummary.class, collection());
+    }
+
+    public Stream<PostSummary> stream(Criteria filter) {
+        return mongoTemplate.stream(project(new Query(filter), excerptLength), PostSummary.class, collection())
+                .map(this::finish);
+    }
+
+    private Query project(Query query, int prefixLength) {
+        query.fields().include(SUMMARY_FIELDS);
+        query.fields()
+                .project(MongoExpression.create(
+                        "{ $substrCP: [ { $ifNull: [ '$content', '' ] }, 0, " + prefixLength + " ] }"))
+                .as("excerpt");
+        query.fields()
+                .project(MongoExpression.create("{ $strLenCP: { $ifNull: [ '$content', '' ] } }"))
+                .as("contentLength");
+        return query;
+    }
+
+    private List<PostSummary> finishAll(List<PostSummary> summaries) {
+        summaries.forEach(this::finish);
+        return summaries;
+    }
+
+    private PostSummary finish(PostSummary summary) {
+        summary.setExcerpt(PostSummary.excerpt(summary.getExcerpt(), summary.getContentLength(), excerptLength));
+        return summary;
+    }
+
+    private String collection() {
+        return mongoTemplate.getCollectionName(Post.class);
+    }
+}
@@ -2,6 +2,7 @@ package com.anonboard.repository;
 
 import com.anonboard.model.Vote;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +13,9 @@ public interface VoteRepository extends MongoRepository<Vote, String> {
 
     Optional<Vote> findByUserIdAndTargetTypeAndTargetId(String userId, Vote.TargetType targetType, String targetId);
 
+    // Only the fields needed to hydrate userVote; served by the unique_vote index
+    @Query(value = "{ 'userId': ?0, 'targetType': ?1, 'targetId': { '$in': ?2 } }",
+            fields = "{ 'targetId': 1, 'voteType': 1 }")
     List<Vote> findByUserIdAndTargetTypeAndTargetIdIn(String userId, Vote.TargetType targetType,
             List<String> targetIds);
 
@@ -0,0 +1,47 @@
+package com.anonboard.search;
+
+import java.util.Arrays;
+
+// Documents containing one term, in increasing document order, with per-document frequency
+// and positions. Appended to only; deletions are handled by the index's tombstones.
+final class PostingList {
+
+    private int size;
+    private int[] docs = new int[2];
+    private int[] freqs = new int[2];
+    private int[][] positions = new int[2][];
+
+    void add(int doc, int freq, int[] termPositions) {
+        if (size == docs.length) {
+            int capacity = size * 2;
+            docs = Arrays.copyOf(docs, capacity);
+            freqs = Arrays.copyOf(freqs, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+        docs[size] = doc;
+        freqs[size] = freq;
+        positions[size] = termPositions;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int doc(int index) {
+        return docs[index];
+    }
+
+    int freq(int index) {
+        return freqs[index];
+    }
+
+    int[] positions(int index) {
+        return positions[index];
+    }
+
+    // Index of the document in this list, or a negative value if absent
+    int find(int doc) {
+        return Arrays.binarySearch(docs, 0, size, doc);
+    }
+}
@@ -0,0 +1,431 @@
+package com.anonboard.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over posts with BM25 ranking, phrase and prefix queries. Searches
+// share a read lock; updates take the write lock. A re-indexed or removed post leaves a
+// tombstone that is dropped when the index is compacted or written to a segment file.
+public class SearchIndex {
+
+    private static final int MAGIC = 0x414E5358;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int TITLE_BOOST = 2;
+    // Position gap between title, tags and content so phrases never span two fields
+    private static final int FIELD_GAP = 100;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Sorted so prefix queries are a range scan over the term dictionary
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<String, Integer> docByPost = new HashMap<>();
+    private final List<String> postByDoc = new ArrayList<>();
+    private int[] docLengths = new int[16];
+    private final BitSet deleted = new BitSet();
+    private long totalLength;
+    private int liveDocs;
+
+    // Caller-defined watermark stored with the segment, e.g. how far the source has been indexed
+    private volatile long watermark;
+
+    public void index(String postId, String title, List<String> tags, String content) {
+        Map<String, List<Integer>> termPositions = new HashMap<>();
+        Map<String, Integer> termFreqs = new HashMap<>();
+
+        int position = 0;
+        position = collect(Tokenizer.tokenize(title, position), TITLE_BOOST, termPositions, termFreqs, position);
+        if (tags != null) {
+            for (String tag : tags) {
+                position = collect(Tokenizer.tokenize(tag, position + FIELD_GAP), 1, termPositions, termFreqs,
+                        position);
+            }
+        }
+        collect(Tokenizer.tokenize(content, position + FIELD_GAP), 1, termPositions, termFreqs, position);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(postId);
+            int doc = postByDoc.size();
+            postByDoc.add(postId);
+            docByPost.put(postId, doc);
+
+            int length = 0;
+            for (Map.Entry<String, List<Integer>> entry : termPositions.entrySet()) {
+                int freq = termFreqs.get(entry.getKey());
+                int[] positions = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                postings.computeIfAbsent(entry.getKey(), t -> new PostingList()).add(doc, freq, positions);
+                length += freq;
+            }
+            setDocLength(doc, length);
+            totalLength += length;
+            liveDocs++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String postId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tombstones() {
+        lock.readLock().lock();
+        try {
+            return postByDoc.size() - liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(long watermark) {
+        this.watermark = watermark;
+    }
+
+    public SearchResults search(SearchQuery query, int offset, int limit) {
+        if (query.isEmpty() || limit <= 0) {
+            return new SearchResults(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return new SearchResults(List.of(), 0);
+            }
+
+            int maxDoc = postByDoc.size();
+            float avgLength = (float) totalLength / liveDocs;
+            float[] scores = new float[maxDoc];
+            BitSet matched = new BitSet(maxDoc);
+
+            Set<String> scoredTerms = new LinkedHashSet<>(query.getTerms());
+            for (String prefix : query.getPrefixes()) {
+                int expansions = 0;
+                for (String term : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).keySet()) {
+                    if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    scoredTerms.add(term);
+                }
+            }
+            for (List<Token> phrase : query.getPhrases()) {
+                phrase.forEach(token -> scoredTerms.add(token.term()));
+            }
+
+            for (String term : scoredTerms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                float idf = (float) Math.log(1 + (liveDocs - list.size() + 0.5) / (list.size() + 0.5));
+                for (int i = 0; i < list.size(); i++) {
+                    int doc = list.doc(i);
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    int freq = list.freq(i);
+                    float norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+                    scores[doc] += idf * freq * (K1 + 1) / (freq + norm);
+                    matched.set(doc);
+                }
+            }
+
+            for (List<Token> phrase : query.getPhrases()) {
+                matched.and(phraseMatches(phrase));
+            }
+
+            // Min-heap of the best offset + limit documents; newer documents win ties
+            int wanted = offset + limit;
+            PriorityQueue<Integer> top = new PriorityQueue<>(wanted + 1, (a, b) -> scores[a] != scores[b]
+                    ? Float.compare(scores[a], scores[b])
+                    : Integer.compare(a, b));
+            long total = 0;
+            for (int doc = matched.nextSetBit(0); doc >= 0; doc = matched.nextSetBit(doc + 1)) {
+                total++;
+                top.offer(doc);
+                if (top.size() > wanted) {
+                    top.poll();
+                }
+            }
+
+            String[] ranked = new String[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = postByDoc.get(top.poll());
+            }
+            List<String> page = offset < ranked.length
+                    ? Arrays.asList(ranked).subList(offset, ranked.length)
+                    : List.of();
+            return new SearchResults(page, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Drops tombstones in place; searches wait for the rebuild
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            SearchIndex copy = compacted();
+            postings.clear();
+            postings.putAll(copy.postings);
+            docByPost.clear();
+            docByPost.putAll(copy.docByPost);
+            postByDoc.clear();
+            postByDoc.addAll(copy.postByDoc);
+            docLengths = copy.docLengths;
+            deleted.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Copy without tombstones, documents renumbered in their original order
+    public SearchIndex compacted() {
+        lock.readLock().lock();
+        try {
+            SearchIndex copy = new SearchIndex();
+            int[] remap = new int[postByDoc.size()];
+            for (int doc = 0; doc < postByDoc.size(); doc++) {
+                if (deleted.get(doc)) {
+                    remap[doc] = -1;
+                    continue;
+                }
+                int newDoc = copy.postByDoc.size();
+                remap[doc] = newDoc;
+                copy.postByDoc.add(postByDoc.get(doc));
+                copy.docByPost.put(postByDoc.get(doc), newDoc);
+                copy.setDocLength(newDoc, docLengths[doc]);
+            }
+
+            postings.forEach((term, list) -> {
+                PostingList live = null;
+                for (int i = 0; i < list.size(); i++) {
+                    int newDoc = remap[list.doc(i)];
+                    if (newDoc >= 0) {
+                        if (live == null) {
+                            live = new PostingList();
+                        }
+                        live.add(newDoc, list.freq(i), list.positions(i));
+                    }
+                }
+                if (live != null) {
+                    copy.postings.put(term, live);
+                }
+            });
+
+            copy.totalLength = totalLength;
+            copy.liveDocs = liveDocs;
+            copy.watermark = watermark;
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Writes a compacted segment to a temporary file and moves it into place
+    public void writeTo(Path file) throws IOException {
+        SearchIndex segment = compacted();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(segment.watermark);
+            out.writeLong(segment.totalLength);
+
+            out.writeInt(segment.postByDoc.size());
+            for (int doc = 0; doc < segment.postByDoc.size(); doc++) {
+                writeString(out, segment.postByDoc.get(doc));
+                out.writeInt(segment.docLengths[doc]);
+            }
+
+            out.writeInt(segment.postings.size());
+            for (Map.Entry<String, PostingList> entry : segment.postings.entrySet()) {
+                PostingList list = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeInt(list.size());
+                for (int i = 0; i < list.size(); i++) {
+                    out.writeInt(list.doc(i));
+                    out.writeInt(list.freq(i));
+                    int[] positions = list.positions(i);
+                    out.writeInt(positions.length);
+                    for (int position : positions) {
+                        out.writeInt(position);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Loads a segment by mapping the file, so reading it is a sequential pass over the page cache
+    public static SearchIndex readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unrecognized search segment: " + file);
+            }
+
+            SearchIndex index = new SearchIndex();
+            index.watermark = buffer.getLong();
+            index.totalLength = buffer.getLong();
+
+            int docCount = buffer.getInt();
+            index.docLengths = new int[Math.max(16, docCount)];
+            for (int doc = 0; doc < docCount; doc++) {
+                String postId = readString(buffer);
+                index.postByDoc.add(postId);
+                index.docByPost.put(postId, doc);
+                index.docLengths[doc] = buffer.getInt();
+            }
+            index.liveDocs = docCount;
+
+            int termCount = buffer.getInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = readString(buffer);
+                int size = buffer.getInt();
+                PostingList list = new PostingList();
+                for (int i = 0; i < size; i++) {
+                    int doc = buffer.getInt();
+                    int freq = buffer.getInt();
+                    int[] positions = new int[buffer.getInt()];
+                    for (int p = 0; p < positions.length; p++) {
+                        positions[p] = buffer.getInt();
+                    }
+                    list.add(doc, freq, positions);
+                }
+                index.postings.put(term, list);
+            }
+            return index;
+        }
+    }
+
+    private int collect(List<Token> tokens, int weight, Map<String, List<Integer>> termPositions,
+            Map<String, Integer> termFreqs, int position) {
+        for (Token token : tokens) {
+            termPositions.computeIfAbsent(token.term(), t -> new ArrayList<>()).add(token.position());
+            termFreqs.merge(token.term(), weight, Integer::sum);
+            position = token.position();
+        }
+        return position;
+    }
+
+    private void removeLocked(String postId) {
+        Integer doc = docByPost.remove(postId);
+        if (doc != null && !deleted.get(doc)) {
+            deleted.set(doc);
+            totalLength -= docLengths[doc];
+            liveDocs--;
+        }
+    }
+
+    private void setDocLength(int doc, int length) {
+        if (doc >= docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, Math.max(doc + 1, docLengths.length * 2));
+        }
+        docLengths[doc] = length;
+    }
+
+    // Documents where the phrase's terms occur at the same relative positions as in the query
+    private BitSet phraseMatches(List<Token> phrase) {
+        BitSet result = new BitSet();
+        PostingList[] lists = new PostingList[phrase.size()];
+        for (int t = 0; t < lists.length; t++) {
+            lists[t] = postings.get(phrase.get(t).term());
+            if (lists[t] == null) {
+                return result;
+            }
+        }
+
+        PostingList first = lists[0];
+        int base = phrase.get(0).position();
+        int[] found = new int[lists.length];
+        for (int i = 0; i < first.size(); i++) {
+            int doc = first.doc(i);
+            if (deleted.get(doc) || !allContain(lists, doc, found)) {
+                continue;
+            }
+            for (int start : first.positions(i)) {
+                boolean aligned = true;
+                for (int t = 1; t < lists.length && aligned; t++) {
+                    int expected = start + phrase.get(t).position() - base;
+                    aligned = Arrays.binarySearch(lists[t].positions(found[t]), expected) >= 0;
+                }
+                if (aligned) {
+                    result.set(doc);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean allContain(PostingList[] lists, int doc, int[] found) {
+        for (int t = 1; t < lists.length; t++) {
+            found[t] = lists[t].find(doc);
+            if (found[t] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
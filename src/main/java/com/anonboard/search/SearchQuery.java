@@ -0,0 +1,102 @@
+package com.anonboard.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Parsed search input: "quoted phrases" must all match, word* expands to every term with that
+// prefix, and the remaining words are ranked by BM25
+public final class SearchQuery {
+
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]*)\"");
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final Set<String> terms;
+    private final List<String> prefixes;
+    private final List<List<Token>> phrases;
+
+    private SearchQuery(Set<String> terms, List<String> prefixes, List<List<Token>> phrases) {
+        this.terms = terms;
+        this.prefixes = prefixes;
+        this.phrases = phrases;
+    }
+
+    public static SearchQuery parse(String input) {
+        Set<String> terms = new LinkedHashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        List<List<Token>> phrases = new ArrayList<>();
+        if (input == null) {
+            return new SearchQuery(terms, prefixes, phrases);
+        }
+
+        Matcher matcher = PHRASE.matcher(input);
+        StringBuilder rest = new StringBuilder();
+        while (matcher.find()) {
+            List<Token> phrase = Tokenizer.tokenize(matcher.group(1));
+            if (phrase.size() == 1) {
+                terms.add(phrase.get(0).term());
+            } else if (phrase.size() > 1) {
+                phrases.add(phrase);
+            }
+            matcher.appendReplacement(rest, " ");
+        }
+        matcher.appendTail(rest);
+
+        for (String word : rest.toString().trim().split("\\s+")) {
+            if (word.endsWith("*")) {
+                String prefix = word.substring(0, word.length() - 1).toLowerCase(Locale.ROOT)
+                        .replaceAll("[^\\p{L}\\p{N}]", "");
+                if (prefix.length() >= MIN_PREFIX_LENGTH) {
+                    prefixes.add(prefix);
+                    continue;
+                }
+            }
+            for (Token token : Tokenizer.tokenize(word)) {
+                terms.add(token.term());
+            }
+        }
+
+        return new SearchQuery(terms, prefixes, phrases);
+    }
+
+    public Set<String> getTerms() {
+        return Collections.unmodifiableSet(terms);
+    }
+
+    public List<String> getPrefixes() {
+        return Collections.unmodifiableList(prefixes);
+    }
+
+    public List<List<Token>> getPhrases() {
+        return Collections.unmodifiableList(phrases);
+    }
+
+    public boolean isEmpty() {
+        return terms.isEmpty() && prefixes.isEmpty() && phrases.isEmpty();
+    }
+
+    // Whether a normalized term from a document should be highlighted
+    public boolean highlights(String term) {
+        if (terms.contains(term)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (term.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (List<Token> phrase : phrases) {
+            for (Token token : phrase) {
+                if (token.term().equals(term)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,7 @@
+package com.anonboard.search;
+
+import java.util.List;
+
+// One page of ranked post ids and the total number of matching posts
+public record SearchResults(List<String> postIds, long total) {
+}
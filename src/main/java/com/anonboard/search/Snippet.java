@@ -0,0 +1,61 @@
+package com.anonboard.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Excerpt around the best match, with [start, end) character offsets of the matched words
+public record Snippet(String text, List<int[]> highlights) {
+
+    private static final String ELLIPSIS = "…";
+
+    // Picks the window of maxLength characters that covers the most query matches
+    public static Snippet build(String text, SearchQuery query, int maxLength) {
+        if (text == null || text.isEmpty()) {
+            return new Snippet("", List.of());
+        }
+
+        List<Token> matches = new ArrayList<>();
+        for (Token token : Tokenizer.tokenize(text)) {
+            if (query.highlights(token.term())) {
+                matches.add(token);
+            }
+        }
+
+        int windowStart = 0;
+        int best = 0;
+        for (int i = 0, j = 0; i < matches.size(); i++) {
+            while (matches.get(i).end() - matches.get(j).start() > maxLength) {
+                j++;
+            }
+            if (i - j + 1 > best) {
+                best = i - j + 1;
+                windowStart = matches.get(j).start();
+            }
+        }
+
+        // Leave a little leading context, starting on a word boundary
+        int start = Math.max(0, windowStart - maxLength / 5);
+        while (start > 0 && start < windowStart && Character.isLetterOrDigit(text.charAt(start - 1))) {
+            start++;
+        }
+        int end = Math.min(text.length(), start + maxLength);
+        while (end < text.length() && end > start && Character.isLetterOrDigit(text.charAt(end))) {
+            end--;
+        }
+        if (end <= start) {
+            end = Math.min(text.length(), start + maxLength);
+        }
+
+        String prefix = start > 0 ? ELLIPSIS : "";
+        String suffix = end < text.length() ? ELLIPSIS : "";
+        int shift = prefix.length() - start;
+
+        List<int[]> highlights = new ArrayList<>();
+        for (Token match : matches) {
+            if (match.start() >= start && match.end() <= end) {
+                highlights.add(new int[] { match.start() + shift, match.end() + shift });
+            }
+        }
+        return new Snippet(prefix + text.substring(start, end) + suffix, highlights);
+    }
+}
@@ -0,0 +1,5 @@
+package com.anonboard.search;
+
+// A normalized term with its position in the token stream and its character span in the source
+public record Token(String term, int position, int start, int end) {
+}
@@ -0,0 +1,82 @@
+package com.anonboard.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Splits text into lowercased, lightly stemmed terms. Stopwords are dropped but still take up a
+// position, so phrase queries line up the same way at index and query time.
+public final class Tokenizer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "of", "on", "or", "such", "that", "the", "their", "then", "there", "these", "they", "this",
+            "to", "was", "will", "with");
+
+    private Tokenizer() {
+    }
+
+    public static List<Token> tokenize(String text) {
+        return tokenize(text, 0);
+    }
+
+    // basePosition lets several fields share one position space without phrases spanning them
+    public static List<Token> tokenize(String text, int basePosition) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        int position = basePosition;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                break;
+            }
+
+            String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+            if (!STOPWORDS.contains(word)) {
+                tokens.add(new Token(stem(word), position, start, i));
+            }
+            position++;
+        }
+        return tokens;
+    }
+
+    public static String normalize(String word) {
+        return stem(word.toLowerCase(Locale.ROOT));
+    }
+
+    // Light English stemmer: plural forms (Harman's S-stemmer) plus -ing and -ed
+    static String stem(String word) {
+        int length = word.length();
+        if (length <= 3) {
+            return word;
+        }
+
+        if (word.endsWith("ies") && !word.endsWith("eies") && !word.endsWith("aies")) {
+            word = word.substring(0, length - 3) + "y";
+        } else if (word.endsWith("es") && !word.endsWith("aes") && !word.endsWith("ees") && !word.endsWith("oes")) {
+            word = word.substring(0, length - 1);
+        } else if (word.endsWith("s") && !word.endsWith("us") && !word.endsWith("ss")) {
+            word = word.substring(0, length - 1);
+        }
+
+        length = word.length();
+        if (length > 5 && word.endsWith("ing")) {
+            word = word.substring(0, length - 3);
+        } else if (length > 4 && word.endsWith("ed")) {
+            word = word.substring(0, length - 2);
+        }
+        return word;
+    }
+}
@@ -2,40 +2,49 @@ package com.anonboard.security;
 
 import com.anonboard.model.User;
 import com.anonboard.repository.UserRepository;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import com.anonboard.service.UserCacheService;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
+    private final UserCacheService userCache;
     private final UserRepository userRepository;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserCacheService userCache, UserRepository userRepository) {
+        this.userCache = userCache;
         this.userRepository = userRepository;
     }
 
+    // Reads Mongo rather than the user cache: the password hash must be current on every
+    // instance the moment it changes, and cached users carry none
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        return new UserPrincipal(user);
+    }
+
+    // Called after a successful login when the stored hash needs re-encoding
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(
+                        "User not found with email: " + userDetails.getUsername()));
+
+        user.setPasswordHash(newPassword);
+        userRepository.save(user);
+        userCache.evict(user);
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPasswordHash(),
-                !user.isBanned(), // enabled
-                true, // accountNonExpired
-                true, // credentialsNonExpired
-                true, // accountNonLocked
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+        return new UserPrincipal(user);
     }
 
     public User getUserByEmail(String email) {
-        return userRepository.findByEmail(email)
+        return userCache.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
     }
 }
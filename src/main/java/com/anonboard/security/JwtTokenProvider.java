@@ -1,65 +1,167 @@
 package com.anonboard.security;
 
+import com.anonboard.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenProvider {
 
+    // Identity claims carried in the token so requests can be authenticated without a user lookup
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_ANONYMOUS_NAME = "name";
+    static final String CLAIM_AVATAR = "avatar";
+    static final String CLAIM_EPOCH = "epoch";
+
     private final SecretKey key;
     private final long jwtExpiration;
+    private final JwtParser parser;
+
+    // Verified claims keyed by a hash of the token, so a token is only parsed and HMAC-checked once
+    private final Cache<String, Claims> verifiedTokens;
 
     public JwtTokenProvider(
             @Value("${jwt.secret}") String jwtSecret,
-            @Value("${jwt.expiration}") long jwtExpiration) {
+            @Value("${jwt.expiration}") long jwtExpiration,
+            @Value("${jwt.cache.max-size:50000}") long cacheMaxSize) {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
         this.jwtExpiration = jwtExpiration;
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return generateToken(userDetails.getUsername());
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        return generateToken(principal.getUser());
     }
 
-    public String generateToken(String email) {
+    public String generateToken(User user) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
         return Jwts.builder()
-                .subject(email)
+                .subject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .claim(CLAIM_ANONYMOUS_NAME, user.getAnonymousName())
+                .claim(CLAIM_AVATAR, user.getAvatar())
+                .claim(CLAIM_EPOCH, user.getSecurityEpoch())
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .signWith(key)
                 .compact();
     }
 
+    public long getExpirationMillis() {
+        return jwtExpiration;
+    }
+
     public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = parseToken(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    // Verifies the token once and returns its claims, or null if it is invalid or expired
+    public Claims parseToken(String token) {
+        String cacheKey = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (cached.getExpiration().getTime() > System.currentTimeMillis()) {
+                return cached;
+            }
+            verifiedTokens.invalidate(cacheKey);
+            return null;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(cacheKey, claims);
+        }
+        return claims;
+    }
 
-        return claims.getSubject();
+    // Builds the principal straight from the token claims; returns null for tokens issued
+    // before identity claims were added, which still need a user lookup
+    public UserPrincipal getPrincipalFromClaims(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+
+        User user = User.builder()
+                .id(userId)
+                .email(claims.getSubject())
+                .anonymousName(claims.get(CLAIM_ANONYMOUS_NAME, String.class))
+                .avatar(claims.get(CLAIM_AVATAR, String.class))
+                .role(User.Role.valueOf(role))
+                .securityEpoch(getEpoch(claims))
+                .build();
+
+        return new UserPrincipal(user);
+    }
+
+    public long getEpoch(Claims claims) {
+        Number epoch = claims.get(CLAIM_EPOCH, Number.class);
+        return epoch != null ? epoch.longValue() : 0;
     }
 
     public boolean validateToken(String token) {
+        return parseToken(token) != null;
+    }
+
+    private static String hash(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Evicts cached claims when the token itself expires
+    private static class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
@@ -0,0 +1,98 @@
+package com.anonboard.security;
+
+import com.anonboard.model.User;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory table of the minimum security epoch a token must carry per user.
+// Fed by ban/unban in AdminService and by a poll for epochs bumped on other instances;
+// entries are dropped once every older token has expired.
+@Component
+@Slf4j
+public class TokenRevocationRegistry {
+
+    private final MongoTemplate mongoTemplate;
+    private final long tokenLifetimeMillis;
+    private final long clockSkewMillis;
+    private final Map<String, Revocation> revocations = new ConcurrentHashMap<>();
+
+    // updatedAt the next poll starts from; only touched by load() and the scheduler thread
+    private volatile Instant pollFrom = Instant.EPOCH;
+
+    public TokenRevocationRegistry(MongoTemplate mongoTemplate, JwtTokenProvider tokenProvider,
+            @Value("${app.security.revocation.clock-skew-ms:5000}") long clockSkewMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.tokenLifetimeMillis = tokenProvider.getExpirationMillis();
+        this.clockSkewMillis = clockSkewMillis;
+    }
+
+    @PostConstruct
+    public void load() {
+        Instant started = Instant.now();
+        Query query = new Query(Criteria.where("securityEpoch").gt(0));
+        query.fields().include("securityEpoch");
+
+        long now = System.currentTimeMillis();
+        for (User user : mongoTemplate.find(query, User.class)) {
+            revocations.put(user.getId(), new Revocation(user.getSecurityEpoch(), now));
+        }
+        pollFrom = started;
+    }
+
+    // Picks up bans and unbans issued through other instances. updatedAt is written by the
+    // instance that saved the user, so the window reaches back by the allowed clock skew;
+    // users seen twice are harmless because revoke() keeps the higher epoch.
+    @Scheduled(fixedDelayString = "${app.security.revocation.refresh-interval-ms:5000}")
+    public void refresh() {
+        Instant started = Instant.now();
+        Query query = new Query(Criteria.where("updatedAt").gte(pollFrom.minusMillis(clockSkewMillis))
+                .and("securityEpoch").gt(0));
+        query.fields().include("securityEpoch");
+
+        try {
+            for (User user : mongoTemplate.find(query, User.class)) {
+                revoke(user.getId(), user.getSecurityEpoch());
+            }
+            pollFrom = started;
+        } catch (DataAccessException e) {
+            // pollFrom stays put, so the next run covers this window again
+            log.warn("Revocation refresh failed: {}", e.getMessage());
+        }
+    }
+
+    public void revoke(String userId, long minimumEpoch) {
+        // An equal epoch is the same revocation seen again; keeping the first recordedAt
+        // lets the entry still expire on schedule
+        revocations.merge(userId, new Revocation(minimumEpoch, System.currentTimeMillis()),
+                (current, next) -> next.epoch() > current.epoch() ? next : current);
+    }
+
+    public boolean isRevoked(String userId, long tokenEpoch) {
+        Revocation revocation = revocations.get(userId);
+        if (revocation == null) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - revocation.recordedAt() > tokenLifetimeMillis) {
+            // Every token issued before this revocation has expired by now
+            revocations.remove(userId, revocation);
+            return false;
+        }
+
+        return tokenEpoch < revocation.epoch();
+    }
+
+    private record Revocation(long epoch, long recordedAt) {
+    }
+}
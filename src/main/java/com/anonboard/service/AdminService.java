@@ -1,16 +1,20 @@
 package com.anonboard.service;
 
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.exception.NotFoundException;
 import com.anonboard.model.Comment;
 import com.anonboard.model.Post;
 import com.anonboard.model.Report;
 import com.anonboard.model.User;
 import com.anonboard.repository.CommentRepository;
+import com.anonboard.repository.KeysetPager;
 import com.anonboard.repository.PostRepository;
 import com.anonboard.repository.UserRepository;
+import com.anonboard.security.TokenRevocationRegistry;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,13 +30,30 @@ public class AdminService {
     private final PostRepository postRepository;
     private final CommentRepository commentRepository;
     private final ReportService reportService;
+    private final UserCacheService userCache;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final KeysetPager keysetPager;
+    private final TrendingService trendingService;
+    private final PostSearchService postSearch;
+    private final TagCatalogService tagCatalog;
+    private final ContentVersionService contentVersions;
 
     public AdminService(UserRepository userRepository, PostRepository postRepository,
-            CommentRepository commentRepository, ReportService reportService) {
+            CommentRepository commentRepository, ReportService reportService, UserCacheService userCache,
+            TokenRevocationRegistry revocationRegistry, KeysetPager keysetPager,
+            TrendingService trendingService, PostSearchService postSearch, TagCatalogService tagCatalog,
+            ContentVersionService contentVersions) {
         this.userRepository = userRepository;
         this.postRepository = postRepository;
         this.commentRepository = commentRepository;
         this.reportService = reportService;
+        this.userCache = userCache;
+        this.revocationRegistry = revocationRegistry;
+        this.keysetPager = keysetPager;
+        this.trendingService = trendingService;
+        this.postSearch = postSearch;
+        this.tagCatalog = tagCatalog;
+        this.contentVersions = contentVersions;
     }
 
     public Map<String, Object> getDashboardStats() {
@@ -51,6 +72,12 @@ public class AdminService {
         return userRepository.findAll(pageable).map(this::mapUserToAdminView);
     }
 
+    // Newest users first, paginated by _id
+    public CursorPage<Map<String, Object>> getUserFeed(String cursor, int size) {
+        return keysetPager.pageById(null, Sort.Direction.DESC, cursor, size, User.class, User::getId)
+                .map(this::mapUserToAdminView);
+    }
+
     public Map<String, Object> getUserRealIdentity(String userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User not found"));
@@ -71,8 +98,11 @@ public class AdminService {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new NotFoundException("Post not found"));
 
-        post.setDeleted(true);
-        postRepository.save(post);
+        postRepository.markDeleted(postId, Instant.now());
+        trendingService.onRemoved(postId);
+        postSearch.onRemoved(postId);
+        tagCatalog.onPostRemoved(post.getTags());
+        contentVersions.onPostChanged(postId);
 
         reportService.resolveAllReportsForTarget(Report.TargetType.POST, postId, adminId, Report.ReportStatus.RESOLVED);
     }
@@ -82,8 +112,7 @@ public class AdminService {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new NotFoundException("Comment not found"));
 
-        comment.setDeleted(true);
-        commentRepository.save(comment);
+        commentRepository.markDeleted(commentId, Instant.now());
 
         reportService.resolveAllReportsForTarget(Report.TargetType.COMMENT, commentId, adminId,
                 Report.ReportStatus.RESOLVED);
@@ -100,8 +129,11 @@ public class AdminService {
         } else {
             user.setBannedUntil(null); // Permanent
         }
+        user.setSecurityEpoch(user.getSecurityEpoch() + 1);
 
         userRepository.save(user);
+        userCache.evict(user);
+        revocationRegistry.revoke(user.getId(), user.getSecurityEpoch());
     }
 
     public void unbanUser(String userId) {
@@ -111,8 +143,11 @@ public class AdminService {
         user.setBanned(false);
         user.setBanReason(null);
         user.setBannedUntil(null);
+        user.setSecurityEpoch(user.getSecurityEpoch() + 1);
 
         userRepository.save(user);
+        userCache.evict(user);
+        revocationRegistry.revoke(user.getId(), user.getSecurityEpoch());
     }
 
     public void updateUserType(String userId, User.UserType userType) {
@@ -121,6 +156,7 @@ public class AdminService {
 
         user.setUserType(userType);
         userRepository.save(user);
+        userCache.evict(user);
     }
 
     private Map<String, Object> mapUserToAdminView(User user) {
@@ -9,8 +9,10 @@ import com.anonboard.exception.ForbiddenException;
 import com.anonboard.model.User;
 import com.anonboard.repository.UserRepository;
 import com.anonboard.security.JwtTokenProvider;
+import com.anonboard.security.UserPrincipal;
 import com.anonboard.util.AnonymousNameGenerator;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -33,9 +35,8 @@ public class AuthService {
     private final AnonymousNameGenerator nameGenerator;
     private final PendingVerificationRepository pendingVerificationRepository;
     private final EmailService emailService;
-
-    @Value("${app.free-user.post-limit:5}")
-    private int freePostLimit;
+    private final UserCacheService userCache;
+    private final PostQuotaService postQuota;
 
     @Value("${app.otp.expiration-minutes:10}")
     private int otpExpirationMinutes;
@@ -43,7 +44,7 @@ public class AuthService {
     public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder,
             JwtTokenProvider tokenProvider, AuthenticationManager authenticationManager,
             AnonymousNameGenerator nameGenerator, PendingVerificationRepository pendingVerificationRepository,
-            EmailService emailService) {
+            EmailService emailService, UserCacheService userCache, PostQuotaService postQuota) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.tokenProvider = tokenProvider;
@@ -51,6 +52,8 @@ public class AuthService {
         this.nameGenerator = nameGenerator;
         this.pendingVerificationRepository = pendingVerificationRepository;
         this.emailService = emailService;
+        this.userCache = userCache;
+        this.postQuota = postQuota;
     }
 
     @org.springframework.transaction.annotation.Transactional
@@ -65,12 +68,13 @@ public class AuthService {
             // Auto-verify them and allow login
             user.setVerified(true);
             userRepository.save(user); // Save the verified status
+            userCache.evict(user);
 
             // sendOtp(user.getEmail()); // Disabled
 
             // We generate a token (which won't work for login yet) just to satisfy the
             // frontend response structure
-            String token = tokenProvider.generateToken(user.getEmail());
+            String token = tokenProvider.generateToken(user);
 
             return AuthResponse.builder()
                     .token(token)
@@ -97,7 +101,7 @@ public class AuthService {
                 .isVerified(true) // Auto-verify (Simplified flow)
                 .build();
 
-        userRepository.save(user);
+        insertWithUniqueName(user);
 
         // Send OTP immediately (DISABLED for simplified flow)
         // sendOtp(user.getEmail());
@@ -117,19 +121,36 @@ public class AuthService {
         // So we should NOT return a usable token or the frontend should see
         // "isVerified: false" and redirect to OTP.
 
-        String token = tokenProvider.generateToken(user.getEmail());
+        String token = tokenProvider.generateToken(user);
 
         return AuthResponse.builder()
                 .token(token)
-                .anonymousName(anonymousName)
+                .anonymousName(user.getAnonymousName())
                 .avatar(avatar)
                 .role(user.getRole().name())
                 .build();
     }
 
+    // The unique index on anonymousName is the final arbiter across instances; if another
+    // signup claimed the same name first, draw a new one and retry
+    private void insertWithUniqueName(User user) {
+        int maxAttempts = 3;
+        for (int attempt = 1;; attempt++) {
+            try {
+                userRepository.insert(user);
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt >= maxAttempts || e.getMessage() == null || !e.getMessage().contains("anonymousName")) {
+                    throw e;
+                }
+                user.setAnonymousName(nameGenerator.generateUniqueName());
+            }
+        }
+    }
+
     public AuthResponse login(LoginRequest request) {
         // First check if user exists and is banned
-        User user = userRepository.findByEmail(request.getEmail())
+        User user = userCache.findByEmail(request.getEmail())
                 .orElseThrow(() -> new BadRequestException("Invalid email or password"));
 
         // Check verification
@@ -139,22 +160,13 @@ public class AuthService {
         // email.");
         // }
 
-        // Check if user is banned
-        if (user.isBanned()) {
-            // Check if ban has expired
-            if (user.getBannedUntil() != null && Instant.now().isAfter(user.getBannedUntil())) {
-                // Ban expired, unban user
-                user.setBanned(false);
-                user.setBanReason(null);
-                user.setBannedUntil(null);
-                userRepository.save(user);
-            } else {
-                String message = "Your account has been banned";
-                if (user.getBanReason() != null) {
-                    message += ": " + user.getBanReason();
-                }
-                throw new ForbiddenException(message);
+        // Check if user is banned (expired bans are lifted by BanExpirySweeper)
+        if (user.isCurrentlyBanned()) {
+            String message = "Your account has been banned";
+            if (user.getBanReason() != null) {
+                message += ": " + user.getBanReason();
             }
+            throw new ForbiddenException(message);
         }
 
         Authentication authentication = authenticationManager.authenticate(
@@ -198,48 +210,41 @@ public class AuthService {
 
         user.setVerified(true);
         userRepository.save(user);
+        userCache.evict(user);
     }
 
     public UserResponse getCurrentUser(String email) {
-        User user = userRepository.findByEmail(email).orElseThrow();
+        User user = userCache.findByEmail(email).orElseThrow();
 
         // Check if banned
-        if (user.isBanned()) {
+        if (user.isCurrentlyBanned()) {
             throw new ForbiddenException("Your account has been banned");
         }
 
-        int postsRemaining;
-        if (user.isPremium()) {
-            postsRemaining = -1; // Unlimited for premium
-        } else {
-            postsRemaining = Math.max(0, freePostLimit - user.getTotalPosts());
-        }
-
         return UserResponse.builder()
                 .anonymousName(user.getAnonymousName())
                 .avatar(user.getAvatar())
                 .role(user.getRole().name())
                 .userType(user.getUserType().name())
                 .isPremium(user.isPremium())
-                .totalPosts(user.getTotalPosts())
-                .postsRemaining(postsRemaining)
-                .freePostLimit(freePostLimit)
+                .totalPosts(postQuota.getTotalPosts(user))
+                .postsRemaining(postQuota.getPostsRemaining(user)) // -1: unlimited for premium
+                .freePostLimit(postQuota.getFreePostLimit())
                 .build();
     }
 
     public User getUserByEmail(String email) {
-        User user = userRepository.findByEmail(email).orElseThrow();
+        return ensureNotBanned(userCache.findByEmail(email).orElseThrow());
+    }
 
-        // Check if banned
-        if (user.isBanned()) {
-            if (user.getBannedUntil() != null && Instant.now().isAfter(user.getBannedUntil())) {
-                user.setBanned(false);
-                user.setBanReason(null);
-                user.setBannedUntil(null);
-                userRepository.save(user);
-            } else {
-                throw new ForbiddenException("Your account has been banned");
-            }
+    // Resolves the user carried by the authenticated principal without another lookup
+    public User getActiveUser(UserPrincipal principal) {
+        return ensureNotBanned(principal.getUser());
+    }
+
+    private User ensureNotBanned(User user) {
+        if (user.isCurrentlyBanned()) {
+            throw new ForbiddenException("Your account has been banned");
         }
 
         return user;
@@ -263,5 +268,6 @@ public class AuthService {
 
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userCache.evict(user);
     }
 }
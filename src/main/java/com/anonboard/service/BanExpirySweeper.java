@@ -0,0 +1,56 @@
+package com.anonboard.service;
+
+import com.anonboard.model.User;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+// Lifts expired temporary bans in one bulk update, so the request path only has to
+// evaluate bannedUntil in memory instead of writing the user back on read
+@Service
+@Slf4j
+public class BanExpirySweeper {
+
+    private final MongoTemplate mongoTemplate;
+    private final DistributionSummary liftedPerRun;
+    private final Timer sweepTimer;
+
+    public BanExpirySweeper(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.liftedPerRun = DistributionSummary.builder("anonboard.bans.lifted")
+                .description("Expired bans lifted per sweep")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("anonboard.bans.sweep")
+                .description("Time taken by a ban expiry sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ban.sweep-interval-ms:60000}")
+    public void liftExpiredBans() {
+        long lifted = sweepTimer.record(() -> {
+            Query expired = new Query(Criteria.where("bannedUntil").lte(Instant.now()).and("isBanned").is(true));
+            Update unban = new Update()
+                    .set("isBanned", false)
+                    .unset("banReason")
+                    .unset("bannedUntil");
+
+            UpdateResult result = mongoTemplate.updateMulti(expired, unban, User.class);
+            return result.getModifiedCount();
+        });
+
+        liftedPerRun.record(lifted);
+        if (lifted > 0) {
+            log.info("Lifted {} expired bans", lifted);
+        }
+    }
+}
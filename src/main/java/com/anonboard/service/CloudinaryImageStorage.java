@@ -0,0 +1,54 @@
+package com.anonboard.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+// Stores images on Cloudinary. Without credentials every store fails, so uploads end FAILED
+// instead of caching a placeholder URL as the image's content-addressed asset.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.images.storage", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryImageStorage implements ImageStorage {
+
+    private final Cloudinary cloudinary;
+
+    public CloudinaryImageStorage(
+            @Value("${cloudinary.cloud-name:}") String cloudName,
+            @Value("${cloudinary.api-key:}") String apiKey,
+            @Value("${cloudinary.api-secret:}") String apiSecret) {
+
+        if (cloudName.isEmpty() || apiKey.isEmpty() || apiSecret.isEmpty()) {
+            this.cloudinary = null;
+            log.warn("Cloudinary is not configured; image uploads will fail");
+        } else {
+            this.cloudinary = new Cloudinary(ObjectUtils.asMap(
+                    "cloud_name", cloudName,
+                    "api_key", apiKey,
+                    "api_secret", apiSecret));
+        }
+    }
+
+    @Override
+    public String store(String key, Path file) throws IOException {
+        if (cloudinary == null) {
+            throw new IOException("Cloudinary is not configured");
+        }
+
+        // Cloudinary adds the extension itself
+        int dot = key.lastIndexOf('.');
+        Map<?, ?> result = cloudinary.uploader().upload(file.toFile(), ObjectUtils.asMap(
+                "folder", "anonboard",
+                "public_id", dot > 0 ? key.substring(0, dot) : key,
+                "overwrite", false,
+                "resource_type", "image"));
+        return (String) result.get("secure_url");
+    }
+}
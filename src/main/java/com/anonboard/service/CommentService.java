@@ -2,26 +2,29 @@ package com.anonboard.service;
 
 import com.anonboard.dto.request.CreateCommentRequest;
 import com.anonboard.dto.response.CommentResponse;
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.exception.ForbiddenException;
 import com.anonboard.exception.NotFoundException;
 import com.anonboard.model.Comment;
-import com.anonboard.model.Vote;
 import com.anonboard.repository.CommentRepository;
+import com.anonboard.repository.CommentThreadRepository;
+import com.anonboard.repository.KeysetPager;
 import com.anonboard.repository.PostRepository;
-import com.anonboard.repository.VoteRepository;
-import com.anonboard.repository.UserRepository;
 import com.anonboard.model.User;
 import com.anonboard.service.NotificationService;
+import com.anonboard.util.PageCursor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,21 +32,36 @@ public class CommentService {
 
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
-    private final VoteRepository voteRepository;
+    private final VoteStateCache voteStates;
+    private final CommentVoteCounterService voteCounters;
 
     private final NotificationService notificationService;
-    private final UserRepository userRepository;
+    private final UserCacheService userCache;
+    private final KeysetPager keysetPager;
+    private final CommentThreadRepository commentThreads;
+    private final TrendingService trendingService;
+    private final HotTagService hotTags;
+    private final ContentVersionService contentVersions;
 
     @Value("${app.comment.edit-window-minutes:10}")
     private int editWindowMinutes;
 
     public CommentService(CommentRepository commentRepository, PostRepository postRepository,
-            VoteRepository voteRepository, NotificationService notificationService, UserRepository userRepository) {
+            VoteStateCache voteStates, CommentVoteCounterService voteCounters,
+            NotificationService notificationService, UserCacheService userCache, KeysetPager keysetPager,
+            CommentThreadRepository commentThreads, TrendingService trendingService, HotTagService hotTags,
+            ContentVersionService contentVersions) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
-        this.voteRepository = voteRepository;
+        this.voteStates = voteStates;
+        this.voteCounters = voteCounters;
         this.notificationService = notificationService;
-        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.keysetPager = keysetPager;
+        this.commentThreads = commentThreads;
+        this.trendingService = trendingService;
+        this.hotTags = hotTags;
+        this.contentVersions = contentVersions;
     }
 
     public CommentResponse createComment(String postId, CreateCommentRequest request, String userId,
@@ -75,12 +93,15 @@ public class CommentService {
                 .build();
 
         comment = commentRepository.save(comment);
+        hotTags.onComment(post.getTags());
 
         if (parentId == null) {
             postRepository.incrementCommentCount(postId, 1);
+            trendingService.onComment(postId, 1);
+            contentVersions.onPostChanged(postId);
 
             // Notify post author
-            User actor = userRepository.findById(userId).orElseThrow();
+            User actor = userCache.findById(userId).orElseThrow();
             notificationService.createNotification(
                     post.getAuthorId(),
                     com.anonboard.model.Notification.NotificationType.POST_COMMENT,
@@ -90,7 +111,7 @@ public class CommentService {
         } else {
             // Notify parent comment author
             commentRepository.findById(parentId).ifPresent(parent -> {
-                User actor = userRepository.findById(userId).orElseThrow();
+                User actor = userCache.findById(userId).orElseThrow();
                 notificationService.createNotification(
                         parent.getAuthorId(),
                         com.anonboard.model.Notification.NotificationType.COMMENT_REPLY,
@@ -100,7 +121,8 @@ public class CommentService {
             });
         }
 
-        return toCommentResponse(comment, userId);
+        // A new comment has no votes yet
+        return toCommentResponse(comment, userId, null);
     }
 
     private String truncate(String str, int length) {
@@ -109,8 +131,9 @@ public class CommentService {
         return str.length() > length ? str.substring(0, length) + "..." : str;
     }
 
-    // Returns ONLY top-level comments - replies are NOT loaded by default
-    public Page<CommentResponse> getComments(String postId, String sortType, int page, int size, String userId) {
+    // Returns ONLY top-level comments; with inlineReplies > 0 each carries its first replies
+    public Page<CommentResponse> getComments(String postId, String sortType, int page, int size, int inlineReplies,
+            String userId) {
         Pageable pageable;
 
         if ("latest".equalsIgnoreCase(sortType)) {
@@ -119,20 +142,52 @@ public class CommentService {
             pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "voteCount"));
         }
 
-        // Get ONLY top-level comments - do NOT load replies
         Page<Comment> comments = commentRepository.findByPostIdAndParentIdIsNullAndIsDeletedFalse(postId, pageable);
 
-        return comments.map(comment -> toCommentResponse(comment, userId));
+        Map<String, List<Comment>> replies = firstReplies(comments.getContent(), inlineReplies);
+        Map<String, Integer> votes = voteStates.getVotes(userId, ids(comments.getContent(), replies));
+        return comments.map(comment -> toThreadResponse(comment, replies, inlineReplies, userId, votes));
+    }
+
+    // Cursor-paginated top-level comments for infinite scroll
+    public CursorPage<CommentResponse> getCommentFeed(String postId, String sortType, String cursor, int size,
+            int inlineReplies, String userId) {
+        Criteria filter = Criteria.where("postId").is(postId).and("parentId").is(null).and("isDeleted").is(false);
+
+        CursorPage<Comment> comments;
+        if ("latest".equalsIgnoreCase(sortType)) {
+            comments = keysetPager.page(filter, "createdAt", Sort.Direction.DESC, cursor, size, Comment.class,
+                    Comment::getCreatedAt, Comment::getId);
+        } else {
+            comments = keysetPager.page(filter, "voteCount", Sort.Direction.DESC, cursor, size, Comment.class,
+                    Comment::getVoteCount, Comment::getId);
+        }
+
+        Map<String, List<Comment>> replies = firstReplies(comments.getContent(), inlineReplies);
+        Map<String, Integer> votes = voteStates.getVotes(userId, ids(comments.getContent(), replies));
+        return comments.map(comment -> toThreadResponse(comment, replies, inlineReplies, userId, votes));
     }
 
     // Separate endpoint to fetch replies for a specific comment
     public List<CommentResponse> getReplies(String commentId, String userId) {
-        return commentRepository.findByParentIdAndIsDeletedFalse(commentId, Sort.by(Sort.Direction.ASC, "createdAt"))
-                .stream()
-                .map(reply -> toCommentResponse(reply, userId))
+        List<Comment> replies = commentRepository.findByParentIdAndIsDeletedFalse(commentId,
+                Sort.by(Sort.Direction.ASC, "createdAt"));
+        Map<String, Integer> votes = voteStates.getVotes(userId, ids(replies));
+        return replies.stream()
+                .map(reply -> toCommentResponse(reply, userId, votes.get(reply.getId())))
                 .collect(Collectors.toList());
     }
 
+    // Cursor-paginated replies, oldest first; continues from a comment's repliesCursor
+    public CursorPage<CommentResponse> getReplyFeed(String commentId, String cursor, int size, String userId) {
+        Criteria filter = Criteria.where("parentId").is(commentId).and("isDeleted").is(false);
+        CursorPage<Comment> replies = keysetPager.page(filter, "createdAt", Sort.Direction.ASC, cursor, size,
+                Comment.class, Comment::getCreatedAt, Comment::getId);
+
+        Map<String, Integer> votes = voteStates.getVotes(userId, ids(replies.getContent()));
+        return replies.map(reply -> toCommentResponse(reply, userId, votes.get(reply.getId())));
+    }
+
     public CommentResponse editComment(String commentId, CreateCommentRequest request, String userId) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new NotFoundException("Comment not found"));
@@ -147,11 +202,13 @@ public class CommentService {
                     "Edit window has expired. Comments can only be edited within " + editWindowMinutes + " minutes.");
         }
 
+        Instant now = Instant.now();
+        commentRepository.updateContent(commentId, request.getContent(), now);
         comment.setContent(request.getContent());
         comment.setEdited(true);
-        comment = commentRepository.save(comment);
+        comment.setUpdatedAt(now);
 
-        return toCommentResponse(comment, userId);
+        return toCommentResponse(comment, userId, voteStates.getVote(userId, commentId));
     }
 
     public void deleteComment(String commentId, String userId) {
@@ -162,29 +219,67 @@ public class CommentService {
             throw new ForbiddenException("You can only delete your own comments");
         }
 
-        comment.setDeleted(true);
-        commentRepository.save(comment);
+        commentRepository.markDeleted(commentId, Instant.now());
 
         if (comment.getParentId() == null) {
             // Top-level comment - decrement post's comment count
             postRepository.incrementCommentCount(comment.getPostId(), -1);
+            trendingService.onComment(comment.getPostId(), -1);
+            contentVersions.onPostChanged(comment.getPostId());
         } else {
             // Reply - decrement parent's reply count
             commentRepository.incrementReplyCount(comment.getParentId(), -1);
         }
     }
 
-    private CommentResponse toCommentResponse(Comment comment, String userId) {
+    private static List<String> ids(List<Comment> comments) {
+        return comments.stream().map(Comment::getId).collect(Collectors.toList());
+    }
+
+    // Ids of a page of comments and of their inlined replies, so one vote lookup covers both
+    private static List<String> ids(List<Comment> comments, Map<String, List<Comment>> replies) {
+        List<String> ids = ids(comments);
+        replies.values().forEach(list -> ids.addAll(ids(list)));
+        return ids;
+    }
+
+    // One aggregation for the whole page; parents known to have no replies are skipped
+    private Map<String, List<Comment>> firstReplies(List<Comment> comments, int inlineReplies) {
+        if (inlineReplies <= 0) {
+            return Map.of();
+        }
+        List<String> parents = comments.stream()
+                .filter(comment -> comment.getReplyCount() > 0)
+                .map(Comment::getId)
+                .collect(Collectors.toList());
+        return commentThreads.findFirstReplies(parents, inlineReplies);
+    }
+
+    private CommentResponse toThreadResponse(Comment comment, Map<String, List<Comment>> replies, int inlineReplies,
+            String userId, Map<String, Integer> votes) {
+        CommentResponse response = toCommentResponse(comment, userId, votes.get(comment.getId()));
+        if (inlineReplies <= 0) {
+            return response;
+        }
+
+        List<Comment> first = replies.getOrDefault(comment.getId(), List.of());
+        response.setReplies(first.stream()
+                .map(reply -> toCommentResponse(reply, userId, votes.get(reply.getId())))
+                .collect(Collectors.toList()));
+        if (first.size() == inlineReplies && comment.getReplyCount() > inlineReplies) {
+            Comment last = first.get(first.size() - 1);
+            response.setRepliesCursor(new PageCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+        return response;
+    }
+
+    // userVote is the viewer's vote, resolved for the whole page by VoteStateCache
+    private CommentResponse toCommentResponse(Comment comment, String userId, Integer userVote) {
         Instant now = Instant.now();
         boolean isAuthor = comment.getAuthorId().equals(userId);
         boolean canEdit = isAuthor && now.isBefore(comment.getEditableUntil());
         long editTimeRemaining = canEdit ? ChronoUnit.SECONDS.between(now, comment.getEditableUntil()) : 0;
 
-        Integer userVote = voteRepository
-                .findByUserIdAndTargetTypeAndTargetId(userId, Vote.TargetType.COMMENT, comment.getId())
-                .map(Vote::getVoteType)
-                .orElse(null);
-
         return CommentResponse.builder()
                 .id(comment.getId())
                 .postId(comment.getPostId())
@@ -192,7 +287,8 @@ public class CommentService {
                 .authorAnonymousName(comment.getAuthorAnonymousName())
                 .authorAvatar(comment.getAuthorAvatar())
                 .content(comment.getContent())
-                .voteCount(comment.getVoteCount())
+                // Plus buffered deltas, so a voter sees their vote before the next flush
+                .voteCount(comment.getVoteCount() + voteCounters.pending(comment.getId()))
                 .userVote(userVote)
                 .replyCount(comment.getReplyCount())
                 .isEdited(comment.isEdited())
@@ -0,0 +1,185 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Comment;
+import com.anonboard.util.CounterBuffer;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Write-behind comment vote counts. Each vote's delta is buffered and flushed as one unordered
+// bulk write of $inc operations, so a viral comment costs one update per flush instead of one
+// per vote. The vote documents are written before their delta is buffered and serve as the
+// log: deltas lost with a crashed instance are restored by VoteReconciler from its checkpoint.
+//
+// Failed deltas are retried for at most retry-window and then dropped for the reconciler to
+// restore, so no delta is still unwritten once its vote is maxBufferedMillis() old. The
+// reconciler relies on that bound to never count a delta another instance has yet to flush.
+@Service
+@Slf4j
+public class CommentVoteCounterService {
+
+    private static final int VOTES = 0;
+
+    private final MongoTemplate mongoTemplate;
+    private final long flushIntervalMillis;
+    private final long retryWindowMillis;
+    private final CounterBuffer buffer = new CounterBuffer(1);
+    // Deltas whose write failed, with when they were first taken for a flush
+    private final Map<String, Retry> retries = new ConcurrentHashMap<>();
+
+    private final Timer flushTimer;
+    private final Counter flushedComments;
+    private final Counter flushFailures;
+    private final Counter dropped;
+
+    public CommentVoteCounterService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+            @Value("${app.votes.counters.flush-interval-ms:1000}") long flushIntervalMillis,
+            @Value("${app.votes.counters.retry-window-ms:20000}") long retryWindowMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.retryWindowMillis = retryWindowMillis;
+
+        Gauge.builder("anonboard.comments.votes.backlog", buffer, CounterBuffer::size)
+                .description("Comments with vote deltas waiting to be flushed")
+                .register(meterRegistry);
+        Gauge.builder("anonboard.comments.votes.lag", buffer, CommentVoteCounterService::lagMillis)
+                .description("Age in milliseconds of the oldest unflushed vote delta")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("anonboard.comments.votes.flush")
+                .description("Time taken to flush buffered comment vote counts")
+                .register(meterRegistry);
+        this.flushedComments = Counter.builder("anonboard.comments.votes.flushed")
+                .description("Comment documents updated by vote count flushes")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("anonboard.comments.votes.flush.failures")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("anonboard.comments.votes.dropped")
+                .description("Vote deltas given up on after the retry window, left to VoteReconciler")
+                .register(meterRegistry);
+    }
+
+    public void add(String commentId, int delta) {
+        if (delta != 0) {
+            buffer.add(commentId, VOTES, delta);
+        }
+    }
+
+    // Delta not yet in the comment's voteCount; listings add it so voters see their vote at once
+    public int pending(String commentId) {
+        Retry retry = retries.get(commentId);
+        return (int) buffer.pending(commentId, VOTES) + (retry != null ? (int) retry.delta() : 0);
+    }
+
+    // Longest a delta can stay unwritten after its vote: one flush interval in the buffer, then
+    // the retry window
+    public long maxBufferedMillis() {
+        return flushIntervalMillis + retryWindowMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${app.votes.counters.flush-interval-ms:1000}")
+    public void flush() {
+        retryFailed();
+        // Buffered deltas were added at most one interval before this flush took them
+        long since = System.currentTimeMillis() - flushIntervalMillis;
+        int flushed = flushTimer.record(() -> buffer.flush(batch -> write(batch, Map.of(), since)));
+        flushedComments.increment(flushed);
+    }
+
+    // The second pass picks up entries retired by the first, so nothing is left behind
+    @PreDestroy
+    public void drain() {
+        flush();
+        flush();
+    }
+
+    private void retryFailed() {
+        if (retries.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, long[]> batch = new HashMap<>();
+        Map<String, Long> since = new HashMap<>();
+        int expired = 0;
+        for (String commentId : List.copyOf(retries.keySet())) {
+            Retry retry = retries.remove(commentId);
+            if (retry == null) {
+                continue;
+            }
+            if (now - retry.since() > retryWindowMillis) {
+                expired++;
+                continue;
+            }
+            batch.put(commentId, new long[] { retry.delta() });
+            since.put(commentId, retry.since());
+        }
+
+        if (expired > 0) {
+            dropped.increment(expired);
+            log.error("Dropped vote deltas of {} comments after {} ms of failed writes; VoteReconciler restores them",
+                    expired, retryWindowMillis);
+        }
+        if (!batch.isEmpty()) {
+            write(batch, since, now);
+        }
+    }
+
+    // Failed deltas go to the retry table, keeping the time they were first taken
+    private void write(Map<String, long[]> batch, Map<String, Long> since, long defaultSince) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Comment.class);
+        List<String> order = new ArrayList<>(batch.size());
+        batch.forEach((commentId, deltas) -> {
+            bulk.updateOne(new Query(Criteria.where("_id").is(commentId)), new Update().inc("voteCount", deltas[VOTES]));
+            order.add(commentId);
+        });
+
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the reported operations was applied, so only retry those
+            for (BulkWriteError error : e.getErrors()) {
+                String commentId = order.get(error.getIndex());
+                retryLater(commentId, batch.get(commentId)[VOTES], since.getOrDefault(commentId, defaultSince));
+            }
+            flushFailures.increment();
+            log.warn("{} comment vote count updates failed and will be retried", e.getErrors().size());
+        } catch (RuntimeException e) {
+            batch.forEach((commentId, deltas) ->
+                    retryLater(commentId, deltas[VOTES], since.getOrDefault(commentId, defaultSince)));
+            flushFailures.increment();
+            log.warn("Failed to flush comment vote counts", e);
+        }
+    }
+
+    private void retryLater(String commentId, long delta, long since) {
+        retries.merge(commentId, new Retry(delta, since),
+                (current, next) -> new Retry(current.delta() + next.delta(), Math.min(current.since(), next.since())));
+    }
+
+    private static double lagMillis(CounterBuffer buffer) {
+        long oldest = buffer.getOldestPendingMillis();
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    private record Retry(long delta, long since) {
+    }
+}
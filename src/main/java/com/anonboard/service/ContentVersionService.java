@@ -0,0 +1,161 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Post;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory versions of what the polled GET endpoints return, so a conditional request can be
+// answered with 304 without reading Mongo. Every write path that changes a post, its counters or
+// a job bumps the matching version. Versions come from one clock-seeded sequence, so an ETag
+// issued before a restart never matches one issued after it. Post, feed and job versions expire
+// after a short TTL, which bounds how stale they can be when another instance wrote. ETags are
+// weak: Tomcat does not compress responses carrying a strong ETag, since the gzipped bytes differ
+// from what the tag names, and these are exactly the large polled payloads worth compressing.
+@Service
+public class ContentVersionService {
+
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() << 16);
+    private final Instant startedAt = Instant.now();
+    private final Duration editWindow;
+    private final long ttlMillis;
+
+    private final Cache<String, PostVersion> posts;
+    // Post id -> sequence value of its last change, to refuse versions for reads that raced a write
+    private final Cache<String, Long> changes;
+    // Authors with a post still inside its edit window; their responses carry a ticking countdown
+    private final Cache<String, Instant> editingAuthors;
+
+    private volatile Version feed;
+    private volatile Version jobs;
+
+    public ContentVersionService(
+            @Value("${app.etag.cache-size:50000}") long cacheSize,
+            @Value("${app.etag.ttl-seconds:30}") long ttlSeconds,
+            @Value("${app.post.edit-window-minutes:10}") long editWindowMinutes) {
+        this.editWindow = Duration.ofMinutes(editWindowMinutes);
+        this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.posts = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.changes = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.editingAuthors = Caffeine.newBuilder()
+                .expireAfterWrite(editWindow)
+                .build();
+        this.feed = nextVersion();
+        // Nothing is known about jobs changed before startup, so treat them as changed now
+        this.jobs = nextVersion();
+    }
+
+    // ETag of a post detail for this viewer, or null if the post's version is not known here or
+    // the viewer is its author while the edit countdown is still running
+    public String postEtag(String postId, String userId) {
+        PostVersion version = posts.getIfPresent(postId);
+        if (version == null) {
+            return null;
+        }
+        boolean isAuthor = version.authorId().equals(userId);
+        if (isAuthor && version.editableUntil() != null && Instant.now().isBefore(version.editableUntil())) {
+            return null;
+        }
+        return "W/\"p" + Long.toString(version.version(), 36) + (isAuthor ? "a" : "") + "\"";
+    }
+
+    // ETag of a feed page for this viewer; the page is identified by its query string
+    public String feedEtag(String userId, String query) {
+        if (Instant.now().isBefore(startedAt.plus(editWindow)) || editingAuthors.getIfPresent(userId) != null) {
+            return null;
+        }
+        long hash = 31L * userId.hashCode() + (query != null ? query.hashCode() : 0);
+        return "W/\"f" + Long.toString(feedVersion().version(), 36) + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    public String jobsEtag(String query) {
+        return "W/\"j" + Long.toString(jobsVersion().version(), 36) + "-"
+                + Integer.toHexString(query != null ? query.hashCode() : 0) + "\"";
+    }
+
+    public String jobEtag(String jobId) {
+        return "W/\"j" + Long.toString(jobsVersion().version(), 36) + "-" + jobId + "\"";
+    }
+
+    public Instant getJobsLastModified() {
+        return jobsVersion().at();
+    }
+
+    // Taken before reading a post, and handed back to onPostLoaded with what was read
+    public long stamp() {
+        return sequence.get();
+    }
+
+    // Registers a version for a post read after the stamp, unless it changed in the meantime
+    public void onPostLoaded(Post post, long stamp) {
+        Long changed = changes.getIfPresent(post.getId());
+        if (changed != null && changed > stamp) {
+            return;
+        }
+        posts.asMap().putIfAbsent(post.getId(),
+                new PostVersion(sequence.incrementAndGet(), post.getAuthorId(), post.getEditableUntil()));
+    }
+
+    public void onPostCreated(Post post) {
+        editingAuthors.put(post.getAuthorId(), post.getEditableUntil());
+        onPostChanged(post.getId());
+    }
+
+    // Any change to a post or its counters: its own version is dropped and every feed changes
+    public void onPostChanged(String postId) {
+        Version version = nextVersion();
+        changes.put(postId, version.version());
+        posts.invalidate(postId);
+        feed = version;
+    }
+
+    public void onFeedChanged() {
+        feed = nextVersion();
+    }
+
+    public void onJobsChanged() {
+        jobs = nextVersion();
+    }
+
+    // The feed version is also rolled over after the TTL, since rankings shift with time and
+    // other instances' writes are not seen here
+    private Version feedVersion() {
+        Version version = feed;
+        if (System.currentTimeMillis() - version.at().toEpochMilli() > ttlMillis) {
+            version = nextVersion();
+            feed = version;
+        }
+        return version;
+    }
+
+    // Jobs are written through any instance, so their version rolls over after the TTL as well
+    private Version jobsVersion() {
+        Version version = jobs;
+        if (System.currentTimeMillis() - version.at().toEpochMilli() > ttlMillis) {
+            version = nextVersion();
+            jobs = version;
+        }
+        return version;
+    }
+
+    private Version nextVersion() {
+        return new Version(sequence.incrementAndGet(), Instant.now());
+    }
+
+    private record Version(long version, Instant at) {
+    }
+
+    private record PostVersion(long version, String authorId, Instant editableUntil) {
+    }
+}
@@ -0,0 +1,341 @@
+package com.anonboard.service;
+
+import com.anonboard.model.OutboundEmail;
+import com.anonboard.repository.OutboundEmailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains the email outbox on a small pool of worker threads. Each worker keeps its own SMTP
+// connection open while there is work, sends claimed emails in batches over it, and retries
+// failures with exponential backoff. A claim is a lease (lockedUntil): it is renewed right before
+// each send, and every write about a claimed email is conditional on still holding it, so a
+// worker that stalled past its lease cannot resend or overwrite an email another worker took.
+@Service
+@Slf4j
+public class EmailOutboxWorker {
+
+    private final MongoTemplate mongoTemplate;
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final JavaMailSenderImpl mailSender;
+
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollIntervalMillis;
+    private final long leaseMillis;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    private final ExecutorService executor;
+    private volatile boolean running;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer sendTimer;
+    private final Timer deliveryLatency;
+
+    public EmailOutboxWorker(MongoTemplate mongoTemplate, OutboundEmailRepository outboundEmailRepository,
+            JavaMailSenderImpl mailSender, MeterRegistry meterRegistry,
+            @Value("${app.mail.outbox.workers:2}") int workers,
+            @Value("${app.mail.outbox.batch-size:20}") int batchSize,
+            @Value("${app.mail.outbox.max-attempts:5}") int maxAttempts,
+            @Value("${app.mail.outbox.poll-interval-ms:1000}") long pollIntervalMillis,
+            @Value("${app.mail.outbox.lease-ms:60000}") long leaseMillis,
+            @Value("${app.mail.outbox.backoff-base-ms:2000}") long backoffBaseMillis,
+            @Value("${app.mail.outbox.backoff-max-ms:300000}") long backoffMaxMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.mailSender = mailSender;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.leaseMillis = leaseMillis;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("anonboard.mail.outbox.depth", queueDepth, AtomicLong::get)
+                .description("Emails waiting in the outbox")
+                .register(meterRegistry);
+        this.sent = Counter.builder("anonboard.mail.sent").register(meterRegistry);
+        this.retried = Counter.builder("anonboard.mail.retried").register(meterRegistry);
+        this.failed = Counter.builder("anonboard.mail.failed").register(meterRegistry);
+        this.sendTimer = Timer.builder("anonboard.mail.send")
+                .description("SMTP time per message")
+                .register(meterRegistry);
+        this.deliveryLatency = Timer.builder("anonboard.mail.latency")
+                .description("Time from enqueue to successful delivery")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::runWorker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.depth-refresh-ms:15000}")
+    public void refreshQueueDepth() {
+        queueDepth.set(outboundEmailRepository.countByStatus(OutboundEmail.Status.PENDING));
+    }
+
+    private void runWorker() {
+        Transport transport = null;
+        int consecutiveErrors = 0;
+        try {
+            while (running) {
+                try {
+                    List<OutboundEmail> batch = claimBatch();
+                    if (batch.isEmpty()) {
+                        // Idle: release the connection rather than let the server time it out
+                        transport = close(transport);
+                        pause(pollIntervalMillis);
+                        continue;
+                    }
+                    transport = sendBatch(transport, batch);
+                    consecutiveErrors = 0;
+                } catch (RuntimeException e) {
+                    // Typically Mongo being unreachable. Claimed emails keep their lease and are
+                    // picked up again once it expires, so the worker only has to back off and go on.
+                    transport = close(transport);
+                    consecutiveErrors++;
+                    long backoff = Math.min(backoffMaxMillis, pollIntervalMillis << Math.min(consecutiveErrors - 1, 20));
+                    log.warn("Email outbox worker failed ({} in a row), retrying in {} ms", consecutiveErrors, backoff, e);
+                    pause(backoff);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(transport);
+        }
+    }
+
+    // Sleeps in poll-sized steps so stop() is not held up by a long backoff
+    private void pause(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        long remaining = millis;
+        while (running && remaining > 0) {
+            Thread.sleep(Math.min(remaining, pollIntervalMillis));
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    // Claims due emails (and ones whose lease expired after a crash) one findAndModify at a time,
+    // so several workers or instances never pick up the same email
+    private List<OutboundEmail> claimBatch() {
+        List<OutboundEmail> batch = new ArrayList<>();
+        Instant now = Instant.now();
+
+        Query due = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(OutboundEmail.Status.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(OutboundEmail.Status.SENDING).and("lockedUntil").lte(now)));
+        Update claim = new Update()
+                .set("status", OutboundEmail.Status.SENDING)
+                .set("lockedUntil", newLease());
+
+        while (batch.size() < batchSize) {
+            OutboundEmail email = mongoTemplate.findAndModify(due, claim,
+                    FindAndModifyOptions.options().returnNew(true), OutboundEmail.class);
+            if (email == null) {
+                break;
+            }
+            batch.add(email);
+        }
+        return batch;
+    }
+
+    // Bookkeeping failures (Mongo) propagate to the worker loop; only SMTP failures mark an email
+    // for retry, so an email that was delivered is never queued to be sent again
+    private Transport sendBatch(Transport transport, List<OutboundEmail> batch) {
+        try {
+            for (OutboundEmail email : batch) {
+                if (!renewLease(email)) {
+                    log.warn("Lost the lease on email {} before sending it; another worker owns it now", email.getId());
+                    continue;
+                }
+
+                try {
+                    if (transport == null || !transport.isConnected()) {
+                        transport = connect();
+                    }
+
+                    MimeMessage message = buildMessage(email);
+                    Transport connected = transport;
+                    sendTimer.recordCallable(() -> {
+                        connected.sendMessage(message, message.getAllRecipients());
+                        return null;
+                    });
+                } catch (Exception e) {
+                    // Start from a fresh connection for the next email
+                    transport = close(transport);
+                    markFailed(email, e);
+                    continue;
+                }
+                markSent(email);
+            }
+            return transport;
+        } catch (RuntimeException e) {
+            close(transport);
+            throw e;
+        }
+    }
+
+    // Extends the lease on a claimed email, so the send that follows starts with a full lease
+    // however long the batch has taken; false if another worker has claimed it since
+    private boolean renewLease(OutboundEmail email) {
+        Instant lockedUntil = newLease();
+        boolean renewed = mongoTemplate.updateFirst(claimed(email), new Update().set("lockedUntil", lockedUntil),
+                OutboundEmail.class).getModifiedCount() > 0;
+        if (renewed) {
+            email.setLockedUntil(lockedUntil);
+        }
+        return renewed;
+    }
+
+    // Matches the email only while this worker's claim on it is current
+    private static Query claimed(OutboundEmail email) {
+        return new Query(Criteria.where("_id").is(email.getId())
+                .and("status").is(OutboundEmail.Status.SENDING)
+                .and("lockedUntil").is(email.getLockedUntil()));
+    }
+
+    // Mongo keeps milliseconds; truncating lets the in-memory lease match what was stored
+    private Instant newLease() {
+        return Instant.now().plusMillis(leaseMillis).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private Transport connect() throws MessagingException {
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+        Transport transport = mailSender.getSession().getTransport(protocol);
+
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        return transport;
+    }
+
+    private Transport close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Failed to close SMTP connection", e);
+            }
+        }
+        return null;
+    }
+
+    private MimeMessage buildMessage(OutboundEmail email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setTo(email.getTo());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getHtmlBody(), true);
+        message.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    private void markSent(OutboundEmail email) {
+        Instant now = Instant.now();
+        boolean recorded = mongoTemplate.updateFirst(claimed(email),
+                new Update()
+                        .set("status", OutboundEmail.Status.SENT)
+                        .set("sentAt", now)
+                        .inc("attempts", 1)
+                        .unset("lockedUntil")
+                        .unset("lastError"),
+                OutboundEmail.class).getModifiedCount() > 0;
+        if (!recorded) {
+            // The lease was renewed just before the send, so this means a send outlasting it
+            log.warn("Email {} was sent after its lease lapsed; another worker may send it again", email.getId());
+        }
+
+        sent.increment();
+        if (email.getCreatedAt() != null) {
+            deliveryLatency.record(Duration.between(email.getCreatedAt(), now));
+        }
+        log.info("Email sent to {}", email.getTo());
+    }
+
+    private void markFailed(OutboundEmail email, Exception e) {
+        // The claim read attempts and nothing else writes it while the claim holds
+        int attempts = email.getAttempts() + 1;
+        Update update = new Update()
+                .inc("attempts", 1)
+                .set("lastError", String.valueOf(e.getMessage()))
+                .unset("lockedUntil");
+
+        if (attempts >= maxAttempts) {
+            update.set("status", OutboundEmail.Status.FAILED);
+            failed.increment();
+            log.error("Giving up on email to {} after {} attempts", email.getTo(), attempts, e);
+        } else {
+            long backoff = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempts - 1, 20));
+            update.set("status", OutboundEmail.Status.PENDING)
+                    .set("nextAttemptAt", Instant.now().plusMillis(backoff));
+            retried.increment();
+            log.warn("Failed to send email to {} (attempt {}), retrying in {} ms", email.getTo(), attempts, backoff);
+        }
+
+        mongoTemplate.updateFirst(claimed(email), update, OutboundEmail.class);
+    }
+}
@@ -0,0 +1,208 @@
+package com.anonboard.service;
+
+import com.anonboard.dto.response.HotTagResponse;
+import com.anonboard.exception.BadRequestException;
+import com.anonboard.util.CountMinSketch;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Fastest-rising tags over sliding windows. Tag activity is counted in time buckets, each holding
+// a count-min sketch plus a bounded set of its heaviest tags, so memory is fixed no matter how
+// many distinct tags appear. A window compares the sum over its buckets with the window before.
+@Service
+public class HotTagService {
+
+    private final int postWeight;
+    private final int commentWeight;
+    private final int viewWeight;
+    private final int candidates;
+
+    // Five-minute buckets for the 1h window, hourly buckets for 24h and 7d; each ring holds two windows
+    private final Ring fine;
+    private final Ring coarse;
+
+    private final Cache<String, List<HotTagResponse>> results;
+
+    public HotTagService(
+            @Value("${app.tags.hot.epsilon:0.005}") double epsilon,
+            @Value("${app.tags.hot.delta:0.01}") double delta,
+            @Value("${app.tags.hot.heavy-hitters-per-bucket:100}") int heavyHitters,
+            @Value("${app.tags.hot.candidates:200}") int candidates,
+            @Value("${app.tags.hot.post-weight:5}") int postWeight,
+            @Value("${app.tags.hot.comment-weight:2}") int commentWeight,
+            @Value("${app.tags.hot.view-weight:1}") int viewWeight,
+            @Value("${app.tags.hot.cache-seconds:15}") long cacheSeconds) {
+        this.postWeight = postWeight;
+        this.commentWeight = commentWeight;
+        this.viewWeight = viewWeight;
+        this.candidates = candidates;
+        this.fine = new Ring(Duration.ofMinutes(5), 24, epsilon, delta, heavyHitters);
+        this.coarse = new Ring(Duration.ofHours(1), 2 * 24 * 7, epsilon, delta, heavyHitters);
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(cacheSeconds))
+                .build();
+    }
+
+    public void onPostCreated(List<String> tags) {
+        record(tags, postWeight);
+    }
+
+    public void onComment(List<String> tags) {
+        record(tags, commentWeight);
+    }
+
+    public void onViews(List<String> tags, int views) {
+        record(tags, viewWeight * views);
+    }
+
+    public List<HotTagResponse> getHotTags(String window, int limit) {
+        List<HotTagResponse> ranked = results.get(window, this::rank);
+        return ranked.subList(0, Math.min(limit, ranked.size()));
+    }
+
+    private void record(List<String> tags, long weight) {
+        if (tags == null || weight <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String tag : tags) {
+            fine.add(now, tag, weight);
+            coarse.add(now, tag, weight);
+        }
+    }
+
+    private List<HotTagResponse> rank(String window) {
+        long now = System.currentTimeMillis();
+        return switch (window) {
+            case "1h" -> fine.rising(now, 12, candidates);
+            case "24h" -> coarse.rising(now, 24, candidates);
+            case "7d" -> coarse.rising(now, 24 * 7, candidates);
+            default -> throw new BadRequestException("Window must be one of 1h, 24h or 7d");
+        };
+    }
+
+    private static final class Ring {
+
+        private final long bucketMillis;
+        private final Bucket[] buckets;
+
+        private Ring(Duration bucketSize, int size, double epsilon, double delta, int heavyHitters) {
+            this.bucketMillis = bucketSize.toMillis();
+            this.buckets = new Bucket[size];
+            for (int i = 0; i < size; i++) {
+                buckets[i] = new Bucket(CountMinSketch.withErrorBounds(epsilon, delta), heavyHitters);
+            }
+        }
+
+        private void add(long now, String tag, long weight) {
+            long epoch = now / bucketMillis;
+            Bucket bucket = buckets[(int) (epoch % buckets.length)];
+            bucket.rollTo(epoch);
+            bucket.offer(tag, bucket.sketch.add(tag, weight));
+        }
+
+        // Ranks the heaviest tags of the last span buckets by how much they grew over the span before
+        private List<HotTagResponse> rising(long now, int span, int candidateLimit) {
+            long current = now / bucketMillis;
+
+            Map<String, Long> heavy = new HashMap<>();
+            for (long epoch = current - span + 1; epoch <= current; epoch++) {
+                Bucket bucket = bucketAt(epoch);
+                if (bucket != null) {
+                    bucket.heavyHitters().forEach((tag, count) -> heavy.merge(tag, count, Long::sum));
+                }
+            }
+
+            return heavy.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(candidateLimit)
+                    .map(entry -> new HotTagResponse(entry.getKey(),
+                            sum(entry.getKey(), current - span + 1, current),
+                            sum(entry.getKey(), current - 2L * span + 1, current - span)))
+                    .filter(tag -> tag.getActivity() > tag.getPreviousActivity())
+                    .sorted(Comparator.comparingDouble(HotTagService::rise).reversed())
+                    .collect(Collectors.toList());
+        }
+
+        private long sum(String tag, long fromEpoch, long toEpoch) {
+            long total = 0;
+            for (long epoch = fromEpoch; epoch <= toEpoch; epoch++) {
+                Bucket bucket = bucketAt(epoch);
+                if (bucket != null) {
+                    total += bucket.sketch.estimate(tag);
+                }
+            }
+            return total;
+        }
+
+        private Bucket bucketAt(long epoch) {
+            if (epoch < 0) {
+                return null;
+            }
+            Bucket bucket = buckets[(int) (epoch % buckets.length)];
+            return bucket.epoch == epoch ? bucket : null;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final CountMinSketch sketch;
+        private final int heavyHitterLimit;
+        private final Map<String, Long> heavyHitters = new HashMap<>();
+        private volatile long epoch = -1;
+
+        private Bucket(CountMinSketch sketch, int heavyHitterLimit) {
+            this.sketch = sketch;
+            this.heavyHitterLimit = heavyHitterLimit;
+        }
+
+        private void rollTo(long newEpoch) {
+            if (epoch != newEpoch) {
+                synchronized (this) {
+                    if (epoch != newEpoch) {
+                        sketch.clear();
+                        heavyHitters.clear();
+                        epoch = newEpoch;
+                    }
+                }
+            }
+        }
+
+        // Keeps the heaviest tags seen in this bucket, evicting the lightest when full
+        private synchronized void offer(String tag, long estimate) {
+            if (heavyHitters.size() < heavyHitterLimit || heavyHitters.containsKey(tag)) {
+                heavyHitters.put(tag, estimate);
+                return;
+            }
+
+            Map.Entry<String, Long> lightest = null;
+            for (Map.Entry<String, Long> entry : heavyHitters.entrySet()) {
+                if (lightest == null || entry.getValue() < lightest.getValue()) {
+                    lightest = entry;
+                }
+            }
+            if (estimate > lightest.getValue()) {
+                heavyHitters.remove(lightest.getKey());
+                heavyHitters.put(tag, estimate);
+            }
+        }
+
+        private synchronized Map<String, Long> heavyHitters() {
+            return new HashMap<>(heavyHitters);
+        }
+    }
+
+    // Growth relative to the noise expected at the previous level
+    private static double rise(HotTagResponse tag) {
+        return (tag.getActivity() - tag.getPreviousActivity()) / Math.sqrt(tag.getPreviousActivity() + 1.0);
+    }
+}
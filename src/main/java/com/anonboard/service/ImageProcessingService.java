@@ -0,0 +1,280 @@
+package com.anonboard.service;
+
+import com.anonboard.model.ImageAsset;
+import com.anonboard.util.ExifOrientation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Turns an uploaded file into stored variants: the image is decoded once (JPEG, PNG, GIF, WebP),
+// EXIF orientation is applied, and full, feed and thumbnail sizes are scaled, re-encoded without
+// metadata and stored in parallel on a dedicated pool. Results are recorded in image_assets
+// under the SHA-256 of the upload, so the same file uploaded again costs one lookup.
+@Service
+public class ImageProcessingService {
+
+    private static final String FULL = "full";
+    private static final String FEED = "feed";
+    private static final String THUMB = "thumb";
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageStorage imageStorage;
+
+    private final int fullSize;
+    private final int feedSize;
+    private final int thumbSize;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    private final ExecutorService executor;
+
+    private final Counter reused;
+    private final Timer processTimer;
+
+    public ImageProcessingService(MongoTemplate mongoTemplate, ImageStorage imageStorage,
+            MeterRegistry meterRegistry,
+            @Value("${app.images.variants.full-size:2048}") int fullSize,
+            @Value("${app.images.variants.feed-size:1080}") int feedSize,
+            @Value("${app.images.variants.thumb-size:320}") int thumbSize,
+            @Value("${app.images.variants.jpeg-quality:0.82}") float jpegQuality,
+            @Value("${app.images.variants.max-pixels:25000000}") long maxPixels,
+            @Value("${app.images.variants.threads:0}") int threads) {
+        this.mongoTemplate = mongoTemplate;
+        this.imageStorage = imageStorage;
+        this.fullSize = fullSize;
+        this.feedSize = feedSize;
+        this.thumbSize = thumbSize;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+
+        // Scaling and encoding are CPU-bound; 0 means one thread per CPU
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "image-variant-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.reused = Counter.builder("anonboard.images.variants.reused")
+                .description("Uploads whose content hash already had stored variants")
+                .register(meterRegistry);
+        this.processTimer = Timer.builder("anonboard.images.variants")
+                .description("Time to decode an upload and store all of its variants")
+                .register(meterRegistry);
+    }
+
+    // Returns the asset for the file's content, creating and storing its variants if it is new.
+    // Throws UnreadableImageException for files that will never decode, so callers need not retry.
+    public ImageAsset process(Path file) throws IOException, InterruptedException {
+        String hash = sha256(file);
+        ImageAsset existing = mongoTemplate.findById(hash, ImageAsset.class);
+        if (existing != null) {
+            reused.increment();
+            return existing;
+        }
+
+        long start = System.nanoTime();
+        Decoded decoded = decode(file);
+        BufferedImage image = decoded.image();
+        // Transparent images stay PNG; everything else becomes JPEG
+        String extension = image.getColorModel().hasAlpha() ? "png" : "jpg";
+
+        Future<String> full = decoded.animated()
+                // Re-encoding would keep only the first frame
+                ? executor.submit(() -> imageStorage.store(hash + "/" + FULL + ".gif", file))
+                : executor.submit(() -> storeVariant(hash, FULL, image, fullSize, extension));
+        Future<String> feed = executor.submit(() -> storeVariant(hash, FEED, image, feedSize, extension));
+        Future<String> thumb = executor.submit(() -> storeVariant(hash, THUMB, image, thumbSize, extension));
+
+        ImageAsset asset;
+        try {
+            asset = ImageAsset.builder()
+                    .hash(hash)
+                    .imageUrl(full.get())
+                    .feedImageUrl(feed.get())
+                    .thumbnailUrl(thumb.get())
+                    .width(image.getWidth())
+                    .height(image.getHeight())
+                    .format(decoded.format())
+                    .createdAt(Instant.now())
+                    .build();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException("Image variant failed", e.getCause());
+        } finally {
+            full.cancel(true);
+            feed.cancel(true);
+            thumb.cancel(true);
+        }
+
+        try {
+            mongoTemplate.insert(asset);
+        } catch (DuplicateKeyException e) {
+            // The same file was processed concurrently; both stored identical content
+            ImageAsset stored = mongoTemplate.findById(hash, ImageAsset.class);
+            return stored != null ? stored : asset;
+        }
+        processTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return asset;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Decoded decode(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new UnreadableImageException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                // Metadata is skipped; the EXIF orientation is read separately below
+                reader.setInput(in, false, true);
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                // Checked before decoding so a small file cannot expand into a huge raster
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new UnreadableImageException("Image has too many pixels: " + pixels);
+                }
+
+                BufferedImage image = reader.read(0);
+                boolean animated = format.equals("gif") && reader.getNumImages(true) > 1;
+                if (format.equals("jpeg") || format.equals("jpg")) {
+                    image = ExifOrientation.apply(image, ExifOrientation.read(file));
+                }
+                return new Decoded(image, format, animated);
+            } catch (UnreadableImageException e) {
+                throw e;
+            } catch (IOException | IllegalArgumentException e) {
+                throw new UnreadableImageException("Could not decode image: " + e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private String storeVariant(String hash, String name, BufferedImage image, int maxSize, String extension)
+            throws IOException {
+        boolean alpha = extension.equals("png");
+        BufferedImage scaled = scale(image, maxSize, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+
+        Path out = Files.createTempFile("anonboard-" + name + "-", "." + extension);
+        try {
+            if (alpha) {
+                ImageIO.write(scaled, "png", out.toFile());
+            } else {
+                writeJpeg(scaled, out);
+            }
+            return imageStorage.store(hash + "/" + name + "." + extension, out);
+        } finally {
+            Files.deleteIfExists(out);
+        }
+    }
+
+    // Fits the image inside maxSize x maxSize, halving in steps so bilinear filtering does not alias
+    private static BufferedImage scale(BufferedImage source, int maxSize, int type) {
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (type == BufferedImage.TYPE_INT_RGB) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, width, height);
+                }
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // Writes a baseline JPEG with no metadata segments beyond JFIF, so EXIF (GPS, device) is dropped
+    private void writeJpeg(BufferedImage image, Path out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out.toFile())) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private record Decoded(BufferedImage image, String format, boolean animated) {
+    }
+
+    // The file is not an image this service can decode; retrying will not help
+    public static class UnreadableImageException extends IOException {
+        public UnreadableImageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.anonboard.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Where processed images are kept. Keys are content addresses ("<sha256>/<variant>.<ext>"), so an
+// object that already exists under a key is never rewritten. Selected by app.images.storage.
+public interface ImageStorage {
+
+    // Stores the file under key unless it is already there and returns the image's public URL
+    String store(String key, Path file) throws IOException;
+}
@@ -0,0 +1,399 @@
+package com.anonboard.service;
+
+import com.anonboard.dto.response.ImageStatusResponse;
+import com.anonboard.exception.BadRequestException;
+import com.anonboard.exception.NotFoundException;
+import com.anonboard.exception.ServiceUnavailableException;
+import com.anonboard.model.ImageAsset;
+import com.anonboard.model.Post;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Uploads post images in the background. The request thread only moves the multipart file into
+// a staging directory and saves the post as PENDING; a bounded pool turns the staged file into
+// stored variants (ImageProcessingService) and patches the post's image URLs. Staged files are
+// named after their post, so uploads interrupted by a restart are picked up again on startup.
+// Each PENDING post records the staging directory's owner id and a lease renewed while the upload
+// runs; on startup an instance resumes only its own uploads and those whose lease has lapsed, so
+// it never fails an upload another live instance is still working on. A periodic sweep takes over
+// lapsed leases as well, so uploads of a crashed instance, or ones whose outcome failed to save,
+// do not stay PENDING until the next restart.
+@Service
+@Slf4j
+public class ImageUploadWorker {
+
+    private static final String BUSY_MESSAGE = "Too many image uploads right now. Please try again in a moment.";
+    // Unclaimed staged files younger than this may belong to a request still in progress
+    private static final Duration ORPHAN_AGE = Duration.ofHours(1);
+    // Holds the owner id in the staging directory, so it survives restarts
+    private static final String OWNER_FILE = ".owner";
+
+    private final ImageService imageService;
+    private final ImageProcessingService imageProcessing;
+    private final MongoTemplate mongoTemplate;
+    private final TrendingService trendingService;
+    private final ContentVersionService contentVersions;
+
+    private final Path stagingDir;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final Duration lease;
+    private final String owner;
+
+    // Staged plus queued plus running uploads; a request that cannot take a slot gets a 503
+    private final Semaphore slots;
+    private final ThreadPoolExecutor executor;
+    // Post id -> completion of its upload, for clients waiting on the status endpoint
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter rejected;
+    private final Counter failed;
+    private final Timer uploadTimer;
+
+    public ImageUploadWorker(ImageService imageService, ImageProcessingService imageProcessing,
+            MongoTemplate mongoTemplate, TrendingService trendingService,
+            ContentVersionService contentVersions, MeterRegistry meterRegistry,
+            @Value("${app.images.upload.staging-dir:data/uploads/staging}") String stagingDir,
+            @Value("${app.images.upload.workers:2}") int workers,
+            @Value("${app.images.upload.capacity:32}") int capacity,
+            @Value("${app.images.upload.max-attempts:3}") int maxAttempts,
+            @Value("${app.images.upload.backoff-ms:2000}") long backoffMillis,
+            @Value("${app.images.upload.lease-ms:120000}") long leaseMillis) throws IOException {
+        this.imageService = imageService;
+        this.imageProcessing = imageProcessing;
+        this.mongoTemplate = mongoTemplate;
+        this.trendingService = trendingService;
+        this.contentVersions = contentVersions;
+        this.stagingDir = Files.createDirectories(Paths.get(stagingDir).toAbsolutePath());
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.owner = loadOwner(this.stagingDir);
+        this.slots = new Semaphore(capacity);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("anonboard.images.upload.queue.depth", executor, e -> e.getQueue().size())
+                .description("Image uploads waiting for a worker")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("anonboard.images.upload.rejected")
+                .description("Image uploads refused because the pipeline was full")
+                .register(meterRegistry);
+        this.failed = Counter.builder("anonboard.images.upload.failed")
+                .description("Image uploads that failed after every retry")
+                .register(meterRegistry);
+        this.uploadTimer = Timer.builder("anonboard.images.upload")
+                .description("Time from staging an image to its post being patched")
+                .register(meterRegistry);
+    }
+
+    // Validates the file and moves it to the staging directory, holding a pipeline slot until
+    // the upload finishes or the image is discarded
+    public StagedImage stage(MultipartFile file) {
+        imageService.validateImage(file);
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw new ServiceUnavailableException(BUSY_MESSAGE);
+        }
+
+        Path path = stagingDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            // Renames the container's temp file where possible; otherwise a streamed copy
+            file.transferTo(path.toFile());
+            return new StagedImage(path, System.nanoTime());
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            deleteQuietly(path);
+            throw new BadRequestException("Failed to read uploaded image");
+        }
+    }
+
+    // Hands a staged image to the pool once its post is saved
+    public void submit(StagedImage image, String postId) {
+        Path path;
+        try {
+            path = Files.move(image.path(), stagingDir.resolve(postId), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            discard(image);
+            complete(postId, null);
+            log.error("Failed to stage image for post {}", postId, e);
+            return;
+        }
+
+        inFlight.put(postId, new CompletableFuture<>());
+        executor.execute(() -> process(postId, path, image.stagedAt(), true));
+    }
+
+    // Releases a staged image whose post was never saved
+    public void discard(StagedImage image) {
+        deleteQuietly(image.path());
+        slots.release();
+    }
+
+    public ImageStatusResponse getStatus(String postId) {
+        Query query = new Query(Criteria.where("_id").is(postId).and("isDeleted").is(false));
+        query.fields().include("imageStatus").include("imageUrl").include("feedImageUrl").include("thumbnailUrl");
+        Post post = mongoTemplate.findOne(query, Post.class);
+        if (post == null) {
+            throw new NotFoundException("Post not found");
+        }
+        return new ImageStatusResponse(postId,
+                post.getImageStatus() != null ? post.getImageStatus().name() : null,
+                post.getImageUrl(), post.getFeedImageUrl(), post.getThumbnailUrl());
+    }
+
+    // Completes when this instance finishes the post's upload; already complete if it is not running here
+    public CompletableFuture<Void> awaitUpload(String postId) {
+        CompletableFuture<Void> upload = inFlight.get(postId);
+        return upload != null ? upload.copy() : CompletableFuture.completedFuture(null);
+    }
+
+    // Owner id recorded on posts whose upload this instance runs
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant newLease() {
+        return Instant.now().plus(lease);
+    }
+
+    // Resumes this instance's uploads cut short by a restart, takes over uploads whose owner let
+    // the lease lapse, and fails those whose staged file is gone. Uploads owned by another
+    // instance with a live lease are left alone.
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        sweep(true);
+        deleteOrphans();
+    }
+
+    // Takes over uploads whose lease lapsed since startup. This instance's own uploads are only
+    // included once their lease lapses too, which happens when they are no longer running here.
+    @Scheduled(fixedDelayString = "${app.images.upload.sweep-interval-ms:60000}")
+    public void sweepLapsed() {
+        sweep(false);
+    }
+
+    private void sweep(boolean includeOwn) {
+        Query query = new Query(claimable(includeOwn));
+        if (!inFlight.isEmpty()) {
+            query.addCriteria(Criteria.where("_id").nin(List.copyOf(inFlight.keySet())));
+        }
+        query.fields().include("_id");
+        List<Post> pending = mongoTemplate.find(query, Post.class);
+        int resumed = 0;
+        int failedCount = 0;
+        for (Post post : pending) {
+            String postId = post.getId();
+            if (inFlight.putIfAbsent(postId, new CompletableFuture<>()) != null) {
+                continue;
+            }
+            // Another instance sweeping at the same time may have taken it over first
+            if (!claim(postId, includeOwn)) {
+                inFlight.remove(postId).complete(null);
+                continue;
+            }
+            Path path = stagingDir.resolve(postId);
+            if (Files.exists(path)) {
+                resumed++;
+                executor.execute(() -> process(postId, path, System.nanoTime(), false));
+            } else {
+                try {
+                    complete(postId, null);
+                    failedCount++;
+                } finally {
+                    inFlight.remove(postId).complete(null);
+                }
+            }
+        }
+
+        if (resumed > 0 || failedCount > 0) {
+            log.info("Resumed {} pending image uploads, failed {} without a staged file", resumed, failedCount);
+        }
+    }
+
+    // Extends the lease on uploads still running here
+    @Scheduled(fixedDelayString = "${app.images.upload.lease-renew-ms:30000}")
+    public void renewLeases() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(inFlight.keySet())
+                        .and("imageStatus").is(Post.ImageStatus.PENDING)
+                        .and("imageOwner").is(owner)),
+                new Update().set("imageLeaseUntil", newLease()),
+                Post.class);
+    }
+
+    // PENDING posts whose owner's lease has lapsed (or predates leases), plus this instance's own
+    // when includeOwn is set
+    private Criteria claimable(boolean includeOwn) {
+        List<Criteria> anyOf = new ArrayList<>(List.of(
+                Criteria.where("imageLeaseUntil").lt(Instant.now()),
+                Criteria.where("imageLeaseUntil").exists(false)));
+        if (includeOwn) {
+            anyOf.add(Criteria.where("imageOwner").is(owner));
+        }
+        return Criteria.where("imageStatus").is(Post.ImageStatus.PENDING).orOperator(anyOf);
+    }
+
+    private boolean claim(String postId, boolean includeOwn) {
+        return mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(postId)).addCriteria(claimable(includeOwn)),
+                new Update().set("imageOwner", owner).set("imageLeaseUntil", newLease()),
+                Post.class).getModifiedCount() > 0;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Interrupted uploads keep their staged file and PENDING status and resume on next start
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void process(String postId, Path path, long stagedAt, boolean holdsSlot) {
+        try {
+            ImageAsset asset = null;
+            for (int attempt = 1; asset == null; attempt++) {
+                try {
+                    asset = imageProcessing.process(path);
+                } catch (ImageProcessingService.UnreadableImageException e) {
+                    failed.increment();
+                    log.warn("Image for post {} cannot be processed: {}", postId, e.getMessage());
+                    break;
+                } catch (IOException | RuntimeException e) {
+                    if (attempt >= maxAttempts) {
+                        failed.increment();
+                        log.error("Giving up on image for post {} after {} attempts", postId, attempt, e);
+                        break;
+                    }
+                    log.warn("Image upload for post {} failed (attempt {}), retrying", postId, attempt, e);
+                    Thread.sleep(backoffMillis * attempt);
+                }
+            }
+
+            complete(postId, asset);
+            deleteQuietly(path);
+            uploadTimer.record(Duration.ofNanos(System.nanoTime() - stagedAt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Failed to finish image for post {}", postId, e);
+        } finally {
+            if (holdsSlot) {
+                slots.release();
+            }
+            CompletableFuture<Void> waiting = inFlight.remove(postId);
+            if (waiting != null) {
+                waiting.complete(null);
+            }
+        }
+    }
+
+    // Records the outcome on the post: READY with the asset's URLs, or FAILED when asset is null
+    private void complete(String postId, ImageAsset asset) {
+        Post.ImageStatus status = asset != null ? Post.ImageStatus.READY : Post.ImageStatus.FAILED;
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(postId)),
+                new Update()
+                        .set("imageUrl", asset != null ? asset.getImageUrl() : null)
+                        .set("feedImageUrl", asset != null ? asset.getFeedImageUrl() : null)
+                        .set("thumbnailUrl", asset != null ? asset.getThumbnailUrl() : null)
+                        .set("imageStatus", status)
+                        .set("updatedAt", Instant.now())
+                        .unset("imageOwner")
+                        .unset("imageLeaseUntil"),
+                Post.class);
+        trendingService.onImageChanged(postId, asset, status);
+        contentVersions.onPostChanged(postId);
+    }
+
+    // Staged files whose post was never saved, e.g. the process died mid-request, and files of
+    // posts that were finished elsewhere after this instance's lease lapsed
+    private void deleteOrphans() {
+        Instant cutoff = Instant.now().minus(ORPHAN_AGE);
+        try (Stream<Path> files = Files.list(stagingDir)) {
+            files.filter(path -> !OWNER_FILE.equals(path.getFileName().toString()))
+                    .filter(path -> !inFlight.containsKey(path.getFileName().toString()))
+                    .filter(path -> modifiedBefore(path, cutoff))
+                    .forEach(ImageUploadWorker::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not clean image staging directory {}", stagingDir, e);
+        }
+    }
+
+    // The id stored in the staging directory, created on first start; staged files are only
+    // readable from this directory, so it identifies who can resume them
+    private static String loadOwner(Path stagingDir) throws IOException {
+        Path file = stagingDir.resolve(OWNER_FILE);
+        try {
+            Files.writeString(file, UUID.randomUUID().toString(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE_NEW);
+        } catch (FileAlreadyExistsException e) {
+            // Started before; keep the existing id
+        }
+        return Files.readString(file, StandardCharsets.UTF_8).trim();
+    }
+
+    private static boolean modifiedBefore(Path path, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete staged image {}", path, e);
+        }
+    }
+
+    public record StagedImage(Path path, long stagedAt) {
+    }
+}
@@ -12,6 +12,7 @@ import java.util.List;
 public class JobService {
 
     private final JobRepository jobRepository;
+    private final ContentVersionService contentVersions;
 
     public List<Job> getActiveJobs(Job.JobType type) {
         if (type != null) {
@@ -30,7 +31,9 @@ public class JobService {
     }
 
     public Job createJob(Job job) {
-        return jobRepository.save(job);
+        Job saved = jobRepository.save(job);
+        contentVersions.onJobsChanged();
+        return saved;
     }
 
     public Job updateJob(String id, Job jobDetails) {
@@ -53,11 +56,14 @@ public class JobService {
         job.setActive(jobDetails.isActive());
         job.setTags(jobDetails.getTags());
 
-        return jobRepository.save(job);
+        Job saved = jobRepository.save(job);
+        contentVersions.onJobsChanged();
+        return saved;
     }
 
     public void deleteJob(String id) {
         Job job = getJobById(id);
         jobRepository.delete(job);
+        contentVersions.onJobsChanged();
     }
 }
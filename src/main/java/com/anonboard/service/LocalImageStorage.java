@@ -0,0 +1,67 @@
+package com.anonboard.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+// Keeps images on local disk for self-hosted deployments, served by ImageController. Files live
+// at root/ab/cd/<sha256>/<variant>.<ext>: two levels of hash-prefix shards keep directories small.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.images.storage", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+
+    // Only keys this service can have written; anything else (e.g. "../") never reaches the filesystem
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}/[a-z]+\\.(jpg|png|gif)");
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalImageStorage(
+            @Value("${app.images.local.root:data/images}") String root,
+            @Value("${app.images.local.base-url:/api/images}") String baseUrl) throws IOException {
+        this.root = Files.createDirectories(Paths.get(root).toAbsolutePath());
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public String store(String key, Path file) throws IOException {
+        Path target = resolve(key);
+        if (target == null) {
+            throw new IllegalArgumentException("Invalid image key: " + key);
+        }
+
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            // Written next to the target and renamed, so readers never see a partial file
+            Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Stored concurrently; same key, same bytes
+                log.debug("Image {} already stored", key);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return baseUrl + "/" + key;
+    }
+
+    // Path of a stored image, or null if the key is malformed
+    public Path resolve(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            return null;
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
@@ -1,11 +1,15 @@
 package com.anonboard.service;
 
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.model.Notification;
 import com.anonboard.model.User;
+import com.anonboard.repository.KeysetPager;
 import com.anonboard.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -15,6 +19,7 @@ import java.util.List;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final KeysetPager keysetPager;
 
     public void createNotification(String recipientId, Notification.NotificationType type,
             String message, String link, User actor) {
@@ -40,6 +45,11 @@ public class NotificationService {
         return notificationRepository.findByRecipientIdOrderByCreatedAtDesc(userId, pageable);
     }
 
+    public CursorPage<Notification> getNotificationFeed(String userId, String cursor, int size) {
+        return keysetPager.page(Criteria.where("recipientId").is(userId), "createdAt", Sort.Direction.DESC, cursor,
+                size, Notification.class, Notification::getCreatedAt, Notification::getId);
+    }
+
     public long getUnreadCount(String userId) {
         return notificationRepository.countByRecipientIdAndIsReadFalse(userId);
     }
@@ -0,0 +1,134 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Post;
+import com.anonboard.util.CounterBuffer;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Write-behind view and share counters. Increments are buffered in memory and flushed as one
+// unordered bulk write of $inc operations, so a hot post costs one update per flush instead of
+// one per event.
+@Service
+@Slf4j
+public class PostCounterService {
+
+    private static final int VIEWS = 0;
+    private static final int SHARES = 1;
+    private static final String[] FIELDS = { "viewCount", "shareCount" };
+
+    private final MongoTemplate mongoTemplate;
+    private final CounterBuffer buffer = new CounterBuffer(FIELDS.length);
+
+    private final Timer flushTimer;
+    private final Counter flushedPosts;
+    private final Counter flushFailures;
+
+    public PostCounterService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+
+        Gauge.builder("anonboard.posts.counters.backlog", buffer, CounterBuffer::size)
+                .description("Posts with view or share increments waiting to be flushed")
+                .register(meterRegistry);
+        Gauge.builder("anonboard.posts.counters.lag", buffer, PostCounterService::lagMillis)
+                .description("Age in milliseconds of the oldest unflushed increment")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("anonboard.posts.counters.flush")
+                .description("Time taken to flush buffered post counters")
+                .register(meterRegistry);
+        this.flushedPosts = Counter.builder("anonboard.posts.counters.flushed")
+                .description("Post documents updated by counter flushes")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("anonboard.posts.counters.flush.failures")
+                .register(meterRegistry);
+    }
+
+    public void incrementViews(String postId, int count) {
+        buffer.add(postId, VIEWS, count);
+    }
+
+    public void incrementShares(String postId) {
+        buffer.add(postId, SHARES, 1);
+    }
+
+    public int pendingViews(String postId) {
+        return (int) buffer.pending(postId, VIEWS);
+    }
+
+    public int pendingShares(String postId) {
+        return (int) buffer.pending(postId, SHARES);
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.post.flush-interval-ms:1000}")
+    public void flush() {
+        try {
+            int flushed = flushTimer.record(() -> buffer.flush(this::write));
+            flushedPosts.increment(flushed);
+        } catch (RuntimeException e) {
+            // Deltas are back in the buffer and go out with the next flush
+            flushFailures.increment();
+            log.warn("Failed to flush post counters", e);
+        }
+    }
+
+    // The second pass picks up entries retired by the first, so nothing is left behind
+    @PreDestroy
+    public void drain() {
+        flush();
+        flush();
+    }
+
+    private void write(Map<String, long[]> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+        List<String> order = new ArrayList<>(batch.size());
+        batch.forEach((postId, deltas) -> {
+            Update update = new Update();
+            for (int field = 0; field < FIELDS.length; field++) {
+                if (deltas[field] != 0) {
+                    update.inc(FIELDS[field], deltas[field]);
+                }
+            }
+            bulk.updateOne(new Query(Criteria.where("_id").is(postId)), update);
+            order.add(postId);
+        });
+
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the reported operations was applied, so only re-buffer those
+            for (BulkWriteError error : e.getErrors()) {
+                String postId = order.get(error.getIndex());
+                long[] deltas = batch.get(postId);
+                for (int field = 0; field < FIELDS.length; field++) {
+                    if (deltas[field] != 0) {
+                        buffer.add(postId, field, deltas[field]);
+                    }
+                }
+            }
+            flushFailures.increment();
+            log.warn("{} post counter updates failed and were re-buffered", e.getErrors().size());
+        }
+    }
+
+    private static double lagMillis(CounterBuffer buffer) {
+        long oldest = buffer.getOldestPendingMillis();
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+}
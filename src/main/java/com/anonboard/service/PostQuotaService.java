@@ -0,0 +1,95 @@
+package com.anonboard.service;
+
+import com.anonboard.exception.ForbiddenException;
+import com.anonboard.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+// Free-user post quota. A slot is reserved with one conditional $inc on users.totalPosts, so
+// parallel creates cannot overshoot the limit, and released again if the post is not saved.
+// The counts returned by those updates are cached so the profile can show what is left
+// without reading the user again.
+@Service
+@Slf4j
+public class PostQuotaService {
+
+    private final MongoTemplate mongoTemplate;
+    private final int freePostLimit;
+    // User id -> totalPosts as last written by this instance
+    private final Cache<String, Integer> totals;
+
+    public PostQuotaService(MongoTemplate mongoTemplate,
+            @Value("${app.free-user.post-limit:5}") int freePostLimit,
+            @Value("${app.free-user.quota-cache-size:10000}") long cacheSize,
+            @Value("${app.free-user.quota-cache-ttl-minutes:30}") long ttlMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.freePostLimit = freePostLimit;
+        this.totals = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    public int getFreePostLimit() {
+        return freePostLimit;
+    }
+
+    // Takes one post slot for the user, or throws if a free user has none left
+    public void reserve(User user) {
+        Query query = new Query(Criteria.where("_id").is(user.getId()));
+        if (!user.isPremium()) {
+            query.addCriteria(Criteria.where("totalPosts").lt(freePostLimit));
+        }
+
+        User updated = increment(query, 1);
+        if (updated == null) {
+            totals.put(user.getId(), Math.max(freePostLimit, getTotalPosts(user)));
+            throw new ForbiddenException("Free users can only create " + freePostLimit +
+                    " posts. Upgrade to premium for unlimited posts.");
+        }
+        totals.put(user.getId(), updated.getTotalPosts());
+    }
+
+    // Gives back a slot taken by reserve() when the post could not be saved
+    public void release(User user) {
+        try {
+            User updated = increment(new Query(Criteria.where("_id").is(user.getId())
+                    .and("totalPosts").gt(0)), -1);
+            if (updated != null) {
+                totals.put(user.getId(), updated.getTotalPosts());
+            }
+        } catch (RuntimeException e) {
+            totals.invalidate(user.getId());
+            log.error("Failed to release post slot for user {}", user.getId(), e);
+        }
+    }
+
+    public int getTotalPosts(User user) {
+        Integer total = totals.getIfPresent(user.getId());
+        return total != null ? total : user.getTotalPosts();
+    }
+
+    // -1 for premium users, who have no limit
+    public int getPostsRemaining(User user) {
+        if (user.isPremium()) {
+            return -1;
+        }
+        return Math.max(0, freePostLimit - getTotalPosts(user));
+    }
+
+    private User increment(Query query, int delta) {
+        query.fields().include("totalPosts");
+        return mongoTemplate.findAndModify(query, new Update().inc("totalPosts", delta),
+                FindAndModifyOptions.options().returnNew(true), User.class);
+    }
+}
@@ -0,0 +1,156 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Post;
+import com.anonboard.search.SearchIndex;
+import com.anonboard.search.SearchQuery;
+import com.anonboard.search.SearchResults;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Keeps the post search index in sync with Mongo. On startup the last segment file is mapped
+// in and only posts updated since it was written are re-indexed; afterwards changes arrive from
+// PostService directly and from a short poll that picks up writes made by other instances.
+// updatedAt comes from each instance's clock and writes commit out of order, so every poll
+// re-reads an overlap window behind the watermark and skips versions it has already indexed.
+@Service
+@Slf4j
+public class PostSearchService {
+
+    private final MongoTemplate mongoTemplate;
+    private final Path segmentFile;
+    private final double compactionRatio;
+    private final long overlapMillis;
+    private final Timer searchTimer;
+
+    private volatile SearchIndex index = new SearchIndex();
+    private volatile boolean dirty;
+
+    // Post id -> updatedAt of the version last indexed by a poll, for posts inside the overlap
+    // window, so a poll re-reading the window skips them. Guarded by catchUp's lock.
+    private final Map<String, Long> polled = new HashMap<>();
+
+    public PostSearchService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+            @Value("${app.search.segment-file:data/search/posts.idx}") String segmentFile,
+            @Value("${app.search.compaction-ratio:0.25}") double compactionRatio,
+            @Value("${app.search.overlap-ms:5000}") long overlapMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.segmentFile = Paths.get(segmentFile);
+        this.compactionRatio = compactionRatio;
+        this.overlapMillis = overlapMillis;
+
+        Gauge.builder("anonboard.search.documents", this, service -> service.index.size())
+                .description("Posts in the search index")
+                .register(meterRegistry);
+        this.searchTimer = Timer.builder("anonboard.search.query")
+                .description("Time taken to run a search against the index")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (Files.exists(segmentFile)) {
+            try {
+                index = SearchIndex.readFrom(segmentFile);
+                log.info("Loaded search segment with {} posts", index.size());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not read search segment {}, rebuilding from Mongo", segmentFile, e);
+                index = new SearchIndex();
+            }
+        }
+
+        long indexed = catchUp();
+        log.info("Search index caught up with {} changed posts", indexed);
+    }
+
+    public SearchResults search(String query, int offset, int limit) {
+        SearchQuery parsed = SearchQuery.parse(query);
+        return searchTimer.record(() -> index.search(parsed, offset, limit));
+    }
+
+    public void onSaved(Post post) {
+        if (post.isDeleted()) {
+            index.remove(post.getId());
+        } else {
+            index.index(post.getId(), post.getTitle(), post.getTags(), post.getContent());
+        }
+        dirty = true;
+    }
+
+    public void onRemoved(String postId) {
+        index.remove(postId);
+        dirty = true;
+    }
+
+    // Re-indexes posts updated since the watermark, less the overlap; returns how many were indexed
+    @Scheduled(fixedDelayString = "${app.search.refresh-interval-ms:5000}")
+    public synchronized long catchUp() {
+        SearchIndex current = index;
+        long watermark = current.getWatermark();
+
+        Instant from = Instant.ofEpochMilli(Math.max(0, watermark - overlapMillis));
+        Query query = new Query(Criteria.where("updatedAt").gt(from));
+        query.fields().include("title").include("content").include("tags").include("isDeleted").include("updatedAt");
+
+        long count = 0;
+        try (Stream<Post> posts = mongoTemplate.stream(query, Post.class)) {
+            for (Post post : (Iterable<Post>) posts::iterator) {
+                long updatedAt = post.getUpdatedAt().toEpochMilli();
+                Long seen = polled.put(post.getId(), updatedAt);
+                if (seen != null && seen == updatedAt) {
+                    continue;
+                }
+                onSaved(post);
+                watermark = Math.max(watermark, updatedAt);
+                count++;
+            }
+        }
+        current.setWatermark(watermark);
+
+        long cutoff = watermark - overlapMillis;
+        polled.values().removeIf(updatedAt -> updatedAt <= cutoff);
+        return count;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.segment-interval-ms:300000}")
+    public void writeSegment() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        SearchIndex current = index;
+        if (current.tombstones() > current.size() * compactionRatio) {
+            current.compact();
+        }
+        try {
+            current.writeTo(segmentFile);
+        } catch (IOException e) {
+            dirty = true;
+            log.error("Failed to write search segment {}", segmentFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeSegment();
+    }
+}
@@ -2,65 +2,91 @@ package com.anonboard.service;
 
 import com.anonboard.dto.request.CreatePostRequest;
 import com.anonboard.dto.request.EditPostRequest;
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.dto.response.PostResponse;
 import com.anonboard.exception.ForbiddenException;
 import com.anonboard.exception.NotFoundException;
 import com.anonboard.model.Post;
-import com.anonboard.model.PostView;
+import com.anonboard.model.PostSummary;
 import com.anonboard.model.User;
 import com.anonboard.repository.PostRepository;
-import com.anonboard.repository.PostViewRepository;
-import com.anonboard.repository.UserRepository;
+import com.anonboard.repository.PostSummaryRepository;
+import com.anonboard.search.SearchQuery;
+import com.anonboard.search.SearchResults;
+import com.anonboard.search.Snippet;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class PostService {
 
     private final PostRepository postRepository;
-    private final UserRepository userRepository;
-    private final PostViewRepository postViewRepository;
+    private final UniqueViewService uniqueViews;
+    private final UserCacheService userCache;
+    private final TrendingService trendingService;
+    private final PostCounterService postCounters;
+    private final PostSearchService postSearch;
+    private final TagCatalogService tagCatalog;
+    private final HotTagService hotTags;
+    private final PostSummaryRepository postSummaries;
+    private final ContentVersionService contentVersions;
+    private final PostQuotaService postQuota;
+    private final ImageUploadWorker imageUploads;
+
+    @Value("${app.search.snippet-length:160}")
+    private int snippetLength;
+
+    // How much of each result's content is read to find the snippet in
+    @Value("${app.search.snippet-scan-length:2000}")
+    private int snippetScanLength;
 
     @Value("${app.post.edit-window-minutes:10}")
     private int editWindowMinutes;
 
-    @Value("${app.free-user.post-limit:5}")
-    private int freePostLimit;
-
-    public PostService(PostRepository postRepository, UserRepository userRepository,
-            PostViewRepository postViewRepository) {
+    public PostService(PostRepository postRepository,
+            UniqueViewService uniqueViews, UserCacheService userCache,
+            TrendingService trendingService, PostCounterService postCounters, PostSearchService postSearch,
+            TagCatalogService tagCatalog, HotTagService hotTags, PostSummaryRepository postSummaries,
+            ContentVersionService contentVersions, PostQuotaService postQuota, ImageUploadWorker imageUploads) {
         this.postRepository = postRepository;
-        this.userRepository = userRepository;
-        this.postViewRepository = postViewRepository;
+        this.uniqueViews = uniqueViews;
+        this.userCache = userCache;
+        this.trendingService = trendingService;
+        this.postCounters = postCounters;
+        this.postSearch = postSearch;
+        this.tagCatalog = tagCatalog;
+        this.hotTags = hotTags;
+        this.postSummaries = postSummaries;
+        this.contentVersions = contentVersions;
+        this.postQuota = postQuota;
+        this.imageUploads = imageUploads;
     }
 
-    public PostResponse createPost(CreatePostRequest request, String imageUrl, String userId, String anonymousName,
-            String avatar) {
-        User user = userRepository.findById(userId).orElseThrow();
+    // A staged image is uploaded in the background once the post is saved; until then the post
+    // carries imageStatus PENDING and no imageUrl
+    public PostResponse createPost(CreatePostRequest request, ImageUploadWorker.StagedImage image, String userId,
+            String anonymousName, String avatar) {
+        User user = userCache.findById(userId).orElseThrow();
 
-        if (user.isBanned()) {
+        if (user.isCurrentlyBanned()) {
             throw new ForbiddenException("Your account has been banned");
         }
 
-        if (!user.isPremium() && user.getTotalPosts() >= freePostLimit) {
-            throw new ForbiddenException("Free users can only create " + freePostLimit +
-                    " posts. Upgrade to premium for unlimited posts.");
-        }
-
-        List<String> tags = request.getTags().stream()
-                .map(tag -> tag.toLowerCase().trim())
-                .filter(tag -> !tag.isEmpty())
-                .distinct()
-                .limit(5)
-                .collect(Collectors.toList());
+        List<String> tags = tagCatalog.resolveAll(request.getTags());
 
         Post post = Post.builder()
                 .authorId(userId)
@@ -69,74 +95,142 @@ public class PostService {
                 .title(request.getTitle())
                 .content(request.getContent())
                 .tags(tags)
-                .imageUrl(imageUrl)
+                .imageUrl(image == null ? request.getImageUrl() : null)
+                .imageStatus(image == null ? null : Post.ImageStatus.PENDING)
+                .imageOwner(image == null ? null : imageUploads.getOwner())
+                .imageLeaseUntil(image == null ? null : imageUploads.newLease())
                 .editableUntil(Instant.now().plus(editWindowMinutes, ChronoUnit.MINUTES))
                 .build();
 
-        post = postRepository.save(post);
-
-        user.setTotalPosts(user.getTotalPosts() + 1);
-        userRepository.save(user);
-
-        return toPostResponse(post, userId);
+        postQuota.reserve(user);
+        try {
+            post = postRepository.save(post);
+        } catch (RuntimeException e) {
+            postQuota.release(user);
+            throw e;
+        }
+        trendingService.onCreated(post);
+        postSearch.onSaved(post);
+        tagCatalog.onPostCreated(post.getTags());
+        hotTags.onPostCreated(post.getTags());
+        contentVersions.onPostCreated(post);
+
+        PostResponse response = toPostResponse(post, userId);
+        if (image != null) {
+            imageUploads.submit(image, post.getId());
+        }
+        return response;
     }
 
     public Page<PostResponse> getPosts(String tag, String sort, int page, int size, String userId) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Post> posts;
+        String normalizedTag = tag != null && !tag.isEmpty() ? tagCatalog.resolve(tag) : null;
+        if ("trending".equalsIgnoreCase(sort)) {
+            return getTrendingPage(normalizedTag, page, size, userId);
+        }
+
+        Criteria filter = Criteria.where("isDeleted").is(false);
+        if (normalizedTag != null) {
+            filter = filter.and("tags").is(normalizedTag);
+        }
+        Sort order = "top".equalsIgnoreCase(sort)
+                ? Sort.by(Sort.Direction.DESC, "viewCount")
+                : Sort.by(Sort.Direction.DESC, "createdAt");
+
+        return postSummaries.findPage(filter, order, PageRequest.of(page, size))
+                .map(post -> toPostResponse(post, userId, true));
+    }
 
+    // Cursor-paginated feed: same filters and sorts as getPosts, without skip or count
+    public CursorPage<PostResponse> getPostFeed(String tag, String sort, String cursor, int size, String userId) {
+        Criteria filter = Criteria.where("isDeleted").is(false);
         if (tag != null && !tag.isEmpty()) {
-            String normalizedTag = tag.toLowerCase().trim();
-            if ("trending".equalsIgnoreCase(sort) || "top".equalsIgnoreCase(sort)) {
-                posts = postRepository.findByTagsContainingAndIsDeletedFalseOrderByViewCountDesc(normalizedTag,
-                        pageable);
-            } else {
-                posts = postRepository.findByTagsContainingAndIsDeletedFalseOrderByCreatedAtDesc(normalizedTag,
-                        pageable);
-            }
+            filter = filter.and("tags").is(tagCatalog.resolve(tag));
+        }
+
+        CursorPage<PostSummary> posts;
+        if ("trending".equalsIgnoreCase(sort)) {
+            posts = postSummaries.findFeed(filter, "hotScore", cursor, size, PostSummary::getHotScore);
+        } else if ("top".equalsIgnoreCase(sort)) {
+            posts = postSummaries.findFeed(filter, "viewCount", cursor, size, PostSummary::getViewCount);
         } else {
-            if ("trending".equalsIgnoreCase(sort) || "top".equalsIgnoreCase(sort)) {
-                posts = postRepository.findByIsDeletedFalseOrderByViewCountDesc(pageable);
-            } else {
-                posts = postRepository.findByIsDeletedFalseOrderByCreatedAtDesc(pageable);
-            }
+            posts = postSummaries.findFeed(filter, "createdAt", cursor, size, PostSummary::getCreatedAt);
         }
 
-        return posts.map(post -> toPostResponse(post, userId));
+        return posts.map(post -> toPostResponse(post, userId, true));
     }
 
     public Page<PostResponse> getTrendingPosts(int page, int size, String userId) {
+        return getTrendingPage(null, page, size, userId);
+    }
+
+    // Served from the in-memory ranking; pages past it fall back to the persisted hot score
+    private Page<PostResponse> getTrendingPage(String tag, int page, int size, String userId) {
         Pageable pageable = PageRequest.of(page, size);
-        return postRepository.findByIsDeletedFalseOrderByViewCountDesc(pageable)
-                .map(post -> toPostResponse(post, userId));
+        List<PostSummary> ranked = trendingService.getTrending(tag, (int) pageable.getOffset(), size);
+        if (ranked != null) {
+            // Ranked snapshots already include unflushed increments
+            return new PageImpl<>(ranked, pageable, trendingService.getRankedCount(tag))
+                    .map(post -> toPostResponse(post, userId, false));
+        }
+
+        Criteria filter = Criteria.where("isDeleted").is(false);
+        if (tag != null) {
+            filter = filter.and("tags").is(tag);
+        }
+        return postSummaries.findPage(filter, Sort.by(Sort.Direction.DESC, "hotScore"), pageable)
+                .map(post -> toPostResponse(post, userId, true));
     }
 
+    // Ranked from the in-memory index; only the posts on the requested page are read from Mongo,
+    // and of those only a bounded prefix of the content to cut the snippet from
     public Page<PostResponse> searchPosts(String query, int page, int size, String userId) {
         Pageable pageable = PageRequest.of(page, size);
-        return postRepository.searchPosts(query, pageable)
-                .map(post -> toPostResponse(post, userId));
+        SearchResults results = postSearch.search(query, (int) pageable.getOffset(), size);
+
+        Map<String, PostSummary> posts = postSummaries.findAllById(results.postIds(), snippetScanLength).stream()
+                .collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+        SearchQuery parsed = SearchQuery.parse(query);
+
+        List<PostResponse> content = results.postIds().stream()
+                .map(posts::get)
+                .filter(Objects::nonNull)
+                .map(post -> {
+                    Snippet snippet = Snippet.build(post.getExcerpt(), parsed, snippetLength);
+                    post.setExcerpt(PostSummary.excerpt(post.getExcerpt(), post.getContentLength(),
+                            postSummaries.getExcerptLength()));
+                    PostResponse response = toPostResponse(post, userId, true);
+                    response.setSnippet(snippet.text());
+                    response.setHighlights(snippet.highlights());
+                    return response;
+                })
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(content, pageable, results.total());
     }
 
     public PostResponse getPostById(String postId, String userId) {
+        long stamp = contentVersions.stamp();
         Post post = postRepository.findById(postId)
                 .filter(p -> !p.isDeleted())
                 .orElseThrow(() -> new NotFoundException("Post not found"));
 
-        // UNIQUE VIEW: Only increment if this user hasn't viewed this post before
-        if (!postViewRepository.existsByUserIdAndPostId(userId, postId)) {
-            postViewRepository.save(PostView.builder()
-                    .userId(userId)
-                    .postId(postId)
-                    .build());
-            postRepository.incrementViewCount(postId);
-            post.setViewCount(post.getViewCount() + 1);
+        // UNIQUE VIEW: only a user's first open of the post counts
+        int newViews = uniqueViews.recordView(postId, userId);
+        if (newViews > 0) {
+            postCounters.incrementViews(postId, newViews);
+            trendingService.onViews(postId, newViews);
+            hotTags.onViews(post.getTags(), newViews);
+            contentVersions.onPostChanged(postId);
         }
+        contentVersions.onPostLoaded(post, stamp);
 
         return toPostResponse(post, userId);
     }
 
     public void incrementShareCount(String postId) {
-        postRepository.incrementShareCount(postId);
+        postCounters.incrementShares(postId);
+        trendingService.onShare(postId);
+        contentVersions.onPostChanged(postId);
     }
 
     public PostResponse editPost(String postId, EditPostRequest request, String userId) {
@@ -153,9 +247,14 @@ public class PostService {
                     "Edit window has expired. Posts can only be edited within " + editWindowMinutes + " minutes.");
         }
 
+        Instant now = Instant.now();
+        postRepository.updateContent(postId, request.getContent(), now);
         post.setContent(request.getContent());
         post.setEdited(true);
-        post = postRepository.save(post);
+        post.setUpdatedAt(now);
+        trendingService.onEdited(post);
+        postSearch.onSaved(post);
+        contentVersions.onPostChanged(postId);
 
         return toPostResponse(post, userId);
     }
@@ -168,21 +267,42 @@ public class PostService {
             throw new ForbiddenException("You can only delete your own posts");
         }
 
-        post.setDeleted(true);
-        postRepository.save(post);
+        postRepository.markDeleted(postId, Instant.now());
+        trendingService.onRemoved(postId);
+        postSearch.onRemoved(postId);
+        tagCatalog.onPostRemoved(post.getTags());
+        contentVersions.onPostChanged(postId);
     }
 
     public Page<PostResponse> getMyPosts(String userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return postRepository.findByAuthorIdAndIsDeletedFalseOrderByCreatedAtDesc(userId, pageable)
-                .map(post -> toPostResponse(post, userId));
+        Criteria filter = Criteria.where("authorId").is(userId).and("isDeleted").is(false);
+        return postSummaries.findPage(filter, Sort.by(Sort.Direction.DESC, "createdAt"), pageable)
+                .map(post -> toPostResponse(post, userId, true));
     }
 
     public Post getPostEntity(String postId) {
         return postRepository.findById(postId).orElse(null);
     }
 
+    // Full post, for the detail view and the author's own create and edit responses
     private PostResponse toPostResponse(Post post, String userId) {
+        PostResponse response = toPostResponse(PostSummary.from(post, 0), userId, true);
+        response.setContent(post.getContent());
+        response.setExcerpt(null);
+        return response;
+    }
+
+    // Feed card: excerpt only. withPending adds buffered view and share increments that have not
+    // been flushed yet
+    private PostResponse toPostResponse(PostSummary post, String userId, boolean withPending) {
+        int viewCount = post.getViewCount();
+        int shareCount = post.getShareCount();
+        if (withPending) {
+            viewCount += postCounters.pendingViews(post.getId());
+            shareCount += postCounters.pendingShares(post.getId());
+        }
+
         Instant now = Instant.now();
         boolean isAuthor = post.getAuthorId().equals(userId);
         boolean canEdit = isAuthor && now.isBefore(post.getEditableUntil());
@@ -193,11 +313,14 @@ public class PostService {
                 .authorAnonymousName(post.getAuthorAnonymousName())
                 .authorAvatar(post.getAuthorAvatar())
                 .title(post.getTitle())
-                .content(post.getContent())
+                .excerpt(post.getExcerpt())
                 .imageUrl(post.getImageUrl())
+                .feedImageUrl(post.getFeedImageUrl())
+                .thumbnailUrl(post.getThumbnailUrl())
+                .imageStatus(post.getImageStatus() != null ? post.getImageStatus().name() : null)
                 .tags(post.getTags())
-                .viewCount(post.getViewCount())
-                .shareCount(post.getShareCount())
+                .viewCount(viewCount)
+                .shareCount(shareCount)
                 .commentCount(post.getCommentCount())
                 .isEdited(post.isEdited())
                 .canEdit(canEdit)
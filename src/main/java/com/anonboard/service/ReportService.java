@@ -1,6 +1,7 @@
 package com.anonboard.service;
 
 import com.anonboard.dto.request.ReportRequest;
+import com.anonboard.dto.response.CursorPage;
 import com.anonboard.dto.response.ReportResponse;
 import com.anonboard.exception.BadRequestException;
 import com.anonboard.exception.NotFoundException;
@@ -8,11 +9,14 @@ import com.anonboard.model.Comment;
 import com.anonboard.model.Post;
 import com.anonboard.model.Report;
 import com.anonboard.repository.CommentRepository;
+import com.anonboard.repository.KeysetPager;
 import com.anonboard.repository.PostRepository;
 import com.anonboard.repository.ReportRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -24,12 +28,14 @@ public class ReportService {
     private final ReportRepository reportRepository;
     private final PostRepository postRepository;
     private final CommentRepository commentRepository;
+    private final KeysetPager keysetPager;
 
     public ReportService(ReportRepository reportRepository, PostRepository postRepository,
-            CommentRepository commentRepository) {
+            CommentRepository commentRepository, KeysetPager keysetPager) {
         this.reportRepository = reportRepository;
         this.postRepository = postRepository;
         this.commentRepository = commentRepository;
+        this.keysetPager = keysetPager;
     }
 
     public void reportPost(String postId, ReportRequest request, String reporterId) {
@@ -90,6 +96,13 @@ public class ReportService {
         return reports.map(this::toReportResponse);
     }
 
+    public CursorPage<ReportResponse> getReportFeed(Report.ReportStatus status, String cursor, int size) {
+        Criteria filter = status != null ? Criteria.where("status").is(status) : new Criteria();
+        return keysetPager.page(filter, "createdAt", Sort.Direction.DESC, cursor, size, Report.class,
+                Report::getCreatedAt, Report::getId)
+                .map(this::toReportResponse);
+    }
+
     public Page<ReportResponse> getPendingReports(int page, int size) {
         return getReports(Report.ReportStatus.PENDING, page, size);
     }
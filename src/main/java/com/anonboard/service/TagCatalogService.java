@@ -0,0 +1,284 @@
+package com.anonboard.service;
+
+import com.anonboard.dto.response.TagResponse;
+import com.anonboard.dto.response.TagSuggestions;
+import com.anonboard.exception.BadRequestException;
+import com.anonboard.model.Post;
+import com.anonboard.model.Tag;
+import com.anonboard.util.Levenshtein;
+import com.anonboard.util.PrefixTrie;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Registry of tags with live post counts and alias rules, served from memory. Counts are
+// adjusted on post create and delete; the tags collection is polled so changes made by other
+// instances (and admin merges) show up within a few seconds.
+@Service
+@Slf4j
+public class TagCatalogService {
+
+    private static final int MAX_TAGS_PER_POST = 5;
+    private static final int TRIE_CANDIDATES = 200;
+    private static final long REFRESH_OVERLAP_MILLIS = 5000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ContentVersionService contentVersions;
+
+    // Canonical tag -> post count
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    // Alias -> canonical tag; replaced wholesale on change
+    private volatile Map<String, String> aliases = Map.of();
+    // Canonical names and aliases -> canonical tag; rebuilt when the set of names changes
+    private volatile PrefixTrie<String> trie = new PrefixTrie<>();
+    private volatile Instant watermark = Instant.EPOCH;
+
+    public TagCatalogService(MongoTemplate mongoTemplate, ContentVersionService contentVersions) {
+        this.mongoTemplate = mongoTemplate;
+        this.contentVersions = contentVersions;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (mongoTemplate.estimatedCount(Tag.class) == 0) {
+            backfill();
+        }
+        refresh();
+        log.info("Tag catalog loaded {} tags and {} aliases", counts.size(), aliases.size());
+    }
+
+    public static String normalize(String tag) {
+        if (tag == null) {
+            return "";
+        }
+        return tag.toLowerCase(Locale.ROOT).trim();
+    }
+
+    // Normalized canonical form, so aliases query the same index range as their target
+    public String resolve(String tag) {
+        String normalized = normalize(tag);
+        return aliases.getOrDefault(normalized, normalized);
+    }
+
+    public List<String> resolveAll(List<String> tags) {
+        Set<String> resolved = new LinkedHashSet<>();
+        for (String tag : tags) {
+            String canonical = resolve(tag);
+            if (!canonical.isEmpty()) {
+                resolved.add(canonical);
+            }
+            if (resolved.size() == MAX_TAGS_PER_POST) {
+                break;
+            }
+        }
+        return List.copyOf(resolved);
+    }
+
+    public void onPostCreated(List<String> tags) {
+        adjust(tags, 1);
+    }
+
+    public void onPostRemoved(List<String> tags) {
+        adjust(tags, -1);
+    }
+
+    public List<TagResponse> getPopularTags(int limit) {
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getValue().get() > 0)
+                .sorted(Map.Entry.<String, AtomicLong>comparingByValue(
+                        Comparator.comparingLong(AtomicLong::get)).reversed())
+                .limit(limit)
+                .map(entry -> new TagResponse(entry.getKey(), entry.getValue().get()))
+                .collect(Collectors.toList());
+    }
+
+    public TagSuggestions suggest(String input, int limit) {
+        String prefix = normalize(input);
+        if (prefix.isEmpty()) {
+            return new TagSuggestions(getPopularTags(limit), null);
+        }
+
+        List<TagResponse> tags = new LinkedHashSet<>(trie.withPrefix(prefix, TRIE_CANDIDATES)).stream()
+                .map(name -> new TagResponse(name, count(name)))
+                .filter(tag -> tag.getPostCount() > 0)
+                .sorted(Comparator.comparingLong(TagResponse::getPostCount).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+
+        String didYouMean = tags.isEmpty() ? closestTag(prefix) : null;
+        return new TagSuggestions(tags, didYouMean);
+    }
+
+    // Makes source an alias of target and moves its posts over
+    public synchronized void merge(String sourceTag, String targetTag) {
+        String source = normalize(sourceTag);
+        String target = resolve(targetTag);
+        if (source.isEmpty() || target.isEmpty() || source.equals(target)) {
+            throw new BadRequestException("Source and target must be two different tags");
+        }
+
+        Instant now = Instant.now();
+        Query tagged = new Query(Criteria.where("tags").is(source));
+        // Two passes: $addToSet and $pull cannot touch the same array in one update
+        mongoTemplate.updateMulti(tagged, new Update().addToSet("tags", target).set("updatedAt", now), Post.class);
+        mongoTemplate.updateMulti(tagged, new Update().pull("tags", source).set("updatedAt", now), Post.class);
+
+        long targetCount = mongoTemplate.count(
+                new Query(Criteria.where("tags").is(target).and("isDeleted").is(false)), Post.class);
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(target)),
+                new Update().set("postCount", targetCount).unset("canonical").set("updatedAt", now), Tag.class);
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(source)),
+                new Update().set("canonical", target).set("postCount", 0).set("updatedAt", now), Tag.class);
+        mongoTemplate.updateMulti(new Query(Criteria.where("canonical").is(source)),
+                new Update().set("canonical", target).set("updatedAt", now), Tag.class);
+
+        counts.remove(source);
+        counts.computeIfAbsent(target, t -> new AtomicLong()).set(targetCount);
+
+        Map<String, String> updated = new HashMap<>();
+        aliases.forEach((alias, canonical) -> updated.put(alias, canonical.equals(source) ? target : canonical));
+        updated.put(source, target);
+        aliases = Map.copyOf(updated);
+        rebuildTrie();
+        contentVersions.onFeedChanged();
+
+        log.info("Merged tag '{}' into '{}' ({} posts)", source, target, targetCount);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tags.refresh-interval-ms:5000}")
+    public void refresh() {
+        Instant since = watermark.minusMillis(REFRESH_OVERLAP_MILLIS);
+        List<Tag> changed = mongoTemplate.find(new Query(Criteria.where("updatedAt").gt(since)), Tag.class);
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        boolean namesChanged = false;
+        Map<String, String> updatedAliases = new HashMap<>(aliases);
+        Instant newest = watermark;
+        for (Tag tag : changed) {
+            if (tag.getCanonical() != null) {
+                namesChanged |= !tag.getCanonical().equals(updatedAliases.put(tag.getName(), tag.getCanonical()));
+                namesChanged |= counts.remove(tag.getName()) != null;
+            } else {
+                namesChanged |= updatedAliases.remove(tag.getName()) != null;
+                AtomicLong count = counts.get(tag.getName());
+                if (count == null) {
+                    counts.put(tag.getName(), new AtomicLong(tag.getPostCount()));
+                    namesChanged = true;
+                } else {
+                    count.set(tag.getPostCount());
+                }
+            }
+            if (tag.getUpdatedAt() != null && tag.getUpdatedAt().isAfter(newest)) {
+                newest = tag.getUpdatedAt();
+            }
+        }
+
+        watermark = newest;
+        if (namesChanged) {
+            aliases = Map.copyOf(updatedAliases);
+            rebuildTrie();
+        }
+    }
+
+    private void adjust(List<String> tags, int delta) {
+        if (tags == null || tags.isEmpty()) {
+            return;
+        }
+
+        boolean added = false;
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tag.class);
+        for (String tag : tags) {
+            AtomicLong count = counts.get(tag);
+            if (count == null) {
+                count = counts.computeIfAbsent(tag, t -> new AtomicLong());
+                added = true;
+            }
+            count.addAndGet(delta);
+            bulk.upsert(new Query(Criteria.where("_id").is(tag)),
+                    new Update().inc("postCount", delta).set("updatedAt", now));
+        }
+        bulk.execute();
+
+        if (added) {
+            rebuildTrie();
+        }
+    }
+
+    private long count(String tag) {
+        AtomicLong count = counts.get(tag);
+        return count != null ? count.get() : 0;
+    }
+
+    // Most used tag within a small edit distance, for "did you mean"
+    private String closestTag(String input) {
+        int maxDistance = input.length() <= 4 ? 1 : 2;
+        String best = null;
+        int bestDistance = maxDistance + 1;
+        long bestCount = 0;
+        for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+            long count = entry.getValue().get();
+            if (count <= 0) {
+                continue;
+            }
+            int distance = Levenshtein.distance(input, entry.getKey(), maxDistance);
+            if (distance < bestDistance || (distance == bestDistance && distance <= maxDistance && count > bestCount)) {
+                best = entry.getKey();
+                bestDistance = distance;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private synchronized void rebuildTrie() {
+        PrefixTrie<String> rebuilt = new PrefixTrie<>();
+        counts.keySet().forEach(name -> rebuilt.put(name, name));
+        aliases.forEach(rebuilt::put);
+        trie = rebuilt;
+    }
+
+    // First start: derive the catalog from the tags already on posts
+    private void backfill() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isDeleted").is(false)),
+                Aggregation.unwind("tags"),
+                Aggregation.group("tags").count().as("postCount"));
+        List<Document> tagCounts = mongoTemplate.aggregate(aggregation, Post.class, Document.class).getMappedResults();
+        if (tagCounts.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tag.class);
+        for (Document tagCount : tagCounts) {
+            bulk.upsert(new Query(Criteria.where("_id").is(tagCount.getString("_id"))),
+                    new Update().set("postCount", ((Number) tagCount.get("postCount")).longValue())
+                            .set("updatedAt", now));
+        }
+        bulk.execute();
+        log.info("Backfilled {} tags from existing posts", tagCounts.size());
+    }
+}
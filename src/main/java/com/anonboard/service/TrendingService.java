@@ -0,0 +1,464 @@
+package com.anonboard.service;
+
+import com.anonboard.model.ImageAsset;
+import com.anonboard.model.Post;
+import com.anonboard.model.PostSummary;
+import com.anonboard.repository.PostSummaryRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Keeps the hottest posts ranked in memory, globally and per tag. Scores are updated on every
+// view, share and comment, so trending reads never touch Mongo; the score is written back to
+// posts.hotScore periodically for pages that fall outside the in-memory window. Posts are held
+// as summaries, so the window costs an excerpt per post rather than its full body.
+//
+// Other instances' writes arrive two ways: a short poll on updatedAt picks up posts created,
+// edited or deleted elsewhere, and the maintenance run reloads the window so counters
+// incremented elsewhere (which do not touch updatedAt) are reflected. The persisted hotScore is
+// computed by Mongo from the stored counters, so instances never overwrite each other's view of
+// a post with their own partial one.
+@Service
+@Slf4j
+public class TrendingService {
+
+    // Reddit-style hot score: ten times the engagement is worth this many seconds of recency.
+    // Because age only enters through createdAt, a score never has to be re-decayed over time.
+    private static final double SECONDS_PER_DECADE = 45000;
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int PERSIST_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final PostSummaryRepository summaries;
+    private final int capacity;
+    private final int windowDays;
+    private final double shareWeight;
+    private final double commentWeight;
+    private final long clockSkewMillis;
+
+    // Every non-deleted post inside the window, keyed by id
+    private final Map<String, PostSummary> tracked = new ConcurrentHashMap<>();
+    private final Ranking global;
+    private final Map<String, Ranking> byTag = new ConcurrentHashMap<>();
+
+    // Posts whose score changed since the last persist
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    // updatedAt the next refresh starts from; only touched by load() and the scheduler thread
+    private volatile Instant pollFrom = Instant.EPOCH;
+
+    private final Timer persistTimer;
+
+    public TrendingService(MongoTemplate mongoTemplate, PostSummaryRepository summaries, MeterRegistry meterRegistry,
+            @Value("${app.trending.capacity:500}") int capacity,
+            @Value("${app.trending.window-days:7}") int windowDays,
+            @Value("${app.trending.share-weight:3}") double shareWeight,
+            @Value("${app.trending.comment-weight:2}") double commentWeight,
+            @Value("${app.trending.clock-skew-ms:5000}") long clockSkewMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.summaries = summaries;
+        this.capacity = capacity;
+        this.windowDays = windowDays;
+        this.shareWeight = shareWeight;
+        this.commentWeight = commentWeight;
+        this.clockSkewMillis = clockSkewMillis;
+        this.global = new Ranking(capacity);
+
+        Gauge.builder("anonboard.trending.tracked", tracked, Map::size)
+                .description("Posts tracked by the trending engine")
+                .register(meterRegistry);
+        this.persistTimer = Timer.builder("anonboard.trending.persist")
+                .description("Time taken to write hot scores back to Mongo")
+                .register(meterRegistry);
+    }
+
+    // Loads the window into memory and gives older posts without a stored score one, so the
+    // Mongo fallback ordering covers every post
+    @PostConstruct
+    public void load() {
+        Instant started = Instant.now();
+        reload();
+        rescoreWindow();
+
+        List<String> backfill = new ArrayList<>();
+        Criteria unscored = Criteria.where("isDeleted").is(false).and("createdAt").lt(windowStart())
+                .and("hotScore").exists(false);
+        try (Stream<PostSummary> posts = summaries.stream(unscored)) {
+            for (PostSummary post : (Iterable<PostSummary>) posts::iterator) {
+                backfill.add(post.getId());
+                if (backfill.size() >= BACKFILL_BATCH_SIZE) {
+                    writeScores(backfill);
+                    backfill.clear();
+                }
+            }
+        }
+        writeScores(backfill);
+        pollFrom = started;
+
+        log.info("Trending engine loaded {} posts from the last {} days", tracked.size(), windowDays);
+    }
+
+    // Returns the requested slice of the ranking, or null when it reaches past what is held in
+    // memory and the caller should fall back to the persisted hot score
+    public List<PostSummary> getTrending(String tag, int offset, int limit) {
+        Ranking ranking = tag == null ? global : byTag.get(tag);
+        if (ranking == null) {
+            return List.of();
+        }
+
+        List<PostSummary> page = new ArrayList<>(limit);
+        int index = 0;
+        for (Ranked entry : ranking.entries) {
+            if (index++ < offset) {
+                continue;
+            }
+            PostSummary post = tracked.get(entry.postId());
+            if (post != null) {
+                page.add(post);
+            }
+            if (page.size() == limit) {
+                return page;
+            }
+        }
+        return ranking.isFull() ? null : page;
+    }
+
+    // Number of ranked posts in the scope, plus one while more may exist beyond the in-memory window
+    public long getRankedCount(String tag) {
+        Ranking ranking = tag == null ? global : byTag.get(tag);
+        if (ranking == null) {
+            return 0;
+        }
+        return ranking.entries.size() + (ranking.isFull() ? 1 : 0);
+    }
+
+    public void onCreated(Post created) {
+        PostSummary post = PostSummary.from(created, summaries.getExcerptLength());
+        if (post.getCreatedAt() == null) {
+            post.setCreatedAt(Instant.now());
+        }
+        track(post);
+        rank(post);
+    }
+
+    public void onViews(String postId, int count) {
+        update(postId, post -> post.setViewCount(post.getViewCount() + count));
+    }
+
+    public void onShare(String postId) {
+        update(postId, post -> post.setShareCount(post.getShareCount() + 1));
+    }
+
+    public void onComment(String postId, int delta) {
+        update(postId, post -> post.setCommentCount(post.getCommentCount() + delta));
+    }
+
+    public void onEdited(Post edited) {
+        PostSummary post = tracked.get(edited.getId());
+        if (post != null) {
+            PostSummary updated = PostSummary.from(edited, summaries.getExcerptLength());
+            synchronized (post) {
+                post.setExcerpt(updated.getExcerpt());
+                post.setContentLength(updated.getContentLength());
+                post.setEdited(updated.isEdited());
+                post.setUpdatedAt(updated.getUpdatedAt());
+            }
+        }
+    }
+
+    // asset is null when the upload failed
+    public void onImageChanged(String postId, ImageAsset asset, Post.ImageStatus status) {
+        PostSummary post = tracked.get(postId);
+        if (post != null) {
+            synchronized (post) {
+                post.setImageUrl(asset != null ? asset.getImageUrl() : null);
+                post.setFeedImageUrl(asset != null ? asset.getFeedImageUrl() : null);
+                post.setThumbnailUrl(asset != null ? asset.getThumbnailUrl() : null);
+                post.setImageStatus(status);
+            }
+        }
+    }
+
+    public void onRemoved(String postId) {
+        PostSummary post = tracked.remove(postId);
+        if (post == null) {
+            return;
+        }
+        dirty.remove(postId);
+
+        // Refill the freed slot from the tracked posts rather than leave the ranking short
+        refill(global, null);
+        for (String tag : post.getTags()) {
+            Ranking ranking = byTag.get(tag);
+            if (ranking != null) {
+                refill(ranking, tag);
+            }
+        }
+    }
+
+    // Picks up posts created, edited or deleted through other instances. updatedAt is written by
+    // the instance that saved the post, so the window reaches back by the allowed clock skew;
+    // posts seen twice are harmless because tracking a post again replaces it.
+    @Scheduled(fixedDelayString = "${app.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        Instant started = Instant.now();
+        Instant from = pollFrom.minusMillis(clockSkewMillis);
+        try {
+            Criteria changed = Criteria.where("isDeleted").is(false).and("updatedAt").gte(from)
+                    .and("createdAt").gte(windowStart());
+            try (Stream<PostSummary> posts = summaries.stream(changed)) {
+                for (PostSummary post : (Iterable<PostSummary>) posts::iterator) {
+                    onRefreshed(post);
+                }
+            }
+
+            Query deleted = new Query(Criteria.where("isDeleted").is(true).and("updatedAt").gte(from));
+            deleted.fields().include("_id");
+            for (Post post : mongoTemplate.find(deleted, Post.class)) {
+                onRemoved(post.getId());
+            }
+            pollFrom = started;
+        } catch (DataAccessException e) {
+            // pollFrom stays put, so the next run covers this window again
+            log.warn("Trending refresh failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.trending.persist-interval-ms:60000}")
+    public void persistScores() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        persistTimer.record(() -> {
+            List<String> changed = new ArrayList<>();
+            for (String postId : dirty) {
+                dirty.remove(postId);
+                changed.add(postId);
+                if (changed.size() >= PERSIST_BATCH_SIZE) {
+                    writeScores(changed);
+                    changed.clear();
+                }
+            }
+            writeScores(changed);
+        });
+    }
+
+    // Reloads the window from Mongo, which drops posts that aged out and takes in every
+    // instance's counters, then rescores the window's stored hotScore from those counters
+    @Scheduled(fixedDelayString = "${app.trending.maintenance-interval-ms:600000}")
+    public void expireOldPosts() {
+        persistScores();
+        reload();
+        rescoreWindow();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persistScores();
+    }
+
+    double score(PostSummary post) {
+        double engagement = post.getViewCount()
+                + shareWeight * post.getShareCount()
+                + commentWeight * post.getCommentCount();
+        return Math.log10(Math.max(1, engagement)) + post.getCreatedAt().getEpochSecond() / SECONDS_PER_DECADE;
+    }
+
+    private void track(PostSummary post) {
+        post.setHotScore(score(post));
+        tracked.put(post.getId(), post);
+        dirty.add(post.getId());
+    }
+
+    // A post read by refresh(): new ones are tracked with the stored counters; for one already
+    // tracked only what an edit or upload changes is taken, since the local counters may be
+    // ahead of what has been flushed
+    private void onRefreshed(PostSummary fresh) {
+        PostSummary post = tracked.get(fresh.getId());
+        if (post == null) {
+            track(fresh);
+            rank(fresh);
+            return;
+        }
+        synchronized (post) {
+            post.setExcerpt(fresh.getExcerpt());
+            post.setContentLength(fresh.getContentLength());
+            post.setEdited(fresh.isEdited());
+            post.setUpdatedAt(fresh.getUpdatedAt());
+            post.setImageUrl(fresh.getImageUrl());
+            post.setFeedImageUrl(fresh.getFeedImageUrl());
+            post.setThumbnailUrl(fresh.getThumbnailUrl());
+            post.setImageStatus(fresh.getImageStatus());
+        }
+    }
+
+    // Replaces the tracked window with what Mongo holds and rebuilds the rankings from it
+    private void reload() {
+        Instant started = Instant.now();
+        Instant cutoff = windowStart();
+        Map<String, PostSummary> loaded = new HashMap<>();
+        try (Stream<PostSummary> posts = summaries.stream(
+                Criteria.where("isDeleted").is(false).and("createdAt").gte(cutoff))) {
+            for (PostSummary post : (Iterable<PostSummary>) posts::iterator) {
+                post.setHotScore(score(post));
+                loaded.put(post.getId(), post);
+            }
+        }
+        tracked.putAll(loaded);
+        // Deleted and aged-out posts go; ones created here while the query ran stay
+        tracked.values().removeIf(post -> !loaded.containsKey(post.getId()) && post.getCreatedAt().isBefore(started));
+        rebuildRankings();
+    }
+
+    private void update(String postId, Consumer<PostSummary> change) {
+        PostSummary post = tracked.get(postId);
+        if (post == null) {
+            return;
+        }
+        synchronized (post) {
+            change.accept(post);
+            post.setHotScore(score(post));
+        }
+        dirty.add(postId);
+        rank(post);
+    }
+
+    private void rank(PostSummary post) {
+        global.offer(post.getId(), post.getHotScore());
+        for (String tag : post.getTags()) {
+            byTag.computeIfAbsent(tag, t -> new Ranking(capacity)).offer(post.getId(), post.getHotScore());
+        }
+    }
+
+    private void refill(Ranking ranking, String tag) {
+        List<PostSummary> candidates = tracked.values().stream()
+                .filter(post -> tag == null || post.getTags().contains(tag))
+                .toList();
+        ranking.replaceAll(candidates);
+    }
+
+    private void rebuildRankings() {
+        Map<String, List<PostSummary>> postsByTag = new HashMap<>();
+        for (PostSummary post : tracked.values()) {
+            for (String tag : post.getTags()) {
+                postsByTag.computeIfAbsent(tag, t -> new ArrayList<>()).add(post);
+            }
+        }
+
+        global.replaceAll(tracked.values());
+        postsByTag.forEach((tag, posts) -> byTag.computeIfAbsent(tag, t -> new Ranking(capacity)).replaceAll(posts));
+        byTag.keySet().retainAll(postsByTag.keySet());
+    }
+
+    private void writeScores(Collection<String> postIds) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(postIds)), storedScore(), Post.class);
+    }
+
+    private void rescoreWindow() {
+        mongoTemplate.updateMulti(new Query(Criteria.where("isDeleted").is(false).and("createdAt").gte(windowStart())),
+                storedScore(), Post.class);
+    }
+
+    // score() as a pipeline update over the stored counters
+    private AggregationUpdate storedScore() {
+        Document engagement = new Document("$add", List.of(
+                new Document("$ifNull", List.of("$viewCount", 0)),
+                new Document("$multiply", List.of(shareWeight, new Document("$ifNull", List.of("$shareCount", 0)))),
+                new Document("$multiply", List.of(commentWeight, new Document("$ifNull", List.of("$commentCount", 0))))));
+        Document createdSeconds = new Document("$trunc",
+                new Document("$divide", List.of(new Document("$toLong", "$createdAt"), 1000)));
+        Document hotScore = new Document("$add", List.of(
+                new Document("$log10", new Document("$max", List.of(1, engagement))),
+                new Document("$divide", List.of(createdSeconds, SECONDS_PER_DECADE))));
+        return AggregationUpdate.from(List.of(context -> new Document("$set", new Document("hotScore", hotScore))));
+    }
+
+    private Instant windowStart() {
+        return Instant.now().minus(windowDays, ChronoUnit.DAYS);
+    }
+
+    private record Ranked(String postId, double score) {
+    }
+
+    // Bounded top-K. Readers iterate the skip list without locking; writers serialize on the ranking.
+    private static final class Ranking {
+
+        private static final Comparator<Ranked> ORDER = Comparator.comparingDouble(Ranked::score).reversed()
+                .thenComparing(Ranked::postId);
+
+        private final int capacity;
+        // Swapped wholesale on rebuild so readers never see a half-built ranking
+        private volatile ConcurrentSkipListSet<Ranked> entries = new ConcurrentSkipListSet<>(ORDER);
+        private Map<String, Ranked> current = new HashMap<>();
+
+        private Ranking(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private boolean isFull() {
+            return entries.size() >= capacity;
+        }
+
+        private synchronized void offer(String postId, double score) {
+            add(entries, current, postId, score);
+        }
+
+        private synchronized void replaceAll(Iterable<PostSummary> posts) {
+            ConcurrentSkipListSet<Ranked> rebuilt = new ConcurrentSkipListSet<>(ORDER);
+            Map<String, Ranked> rebuiltIndex = new HashMap<>();
+            for (PostSummary post : posts) {
+                add(rebuilt, rebuiltIndex, post.getId(), post.getHotScore());
+            }
+            current = rebuiltIndex;
+            entries = rebuilt;
+        }
+
+        private void add(ConcurrentSkipListSet<Ranked> set, Map<String, Ranked> index, String postId, double score) {
+            Ranked previous = index.remove(postId);
+            if (previous != null) {
+                set.remove(previous);
+            } else if (set.size() >= capacity && score <= set.last().score()) {
+                return;
+            }
+
+            Ranked entry = new Ranked(postId, score);
+            set.add(entry);
+            index.put(postId, entry);
+
+            while (set.size() > capacity) {
+                index.remove(set.pollLast().postId());
+            }
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.anonboard.service;
+
+import com.anonboard.model.PostView;
+import com.anonboard.model.PostViewBucket;
+import com.anonboard.util.HyperLogLog;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Tracks which users have viewed each post. Viewers are kept per post as a RoaringBitmap of
+// user ordinals, switching to a HyperLogLog once a post is too hot for an exact set. Sets live
+// in a bounded cache and are written to post_view_buckets when dirty or evicted, so a post
+// open is a memory check instead of a lookup and insert against post_views. Writes are
+// conditional on the bucket's version; when another instance wrote in between, its viewers are
+// merged in and the write retried, so no instance's viewers are lost. An evicted set whose
+// write fails is held until a flush writes it, and handed back if its post is opened again.
+@Service
+@Slf4j
+public class UniqueViewService {
+
+    private static final String MIGRATION_MARKER = "postViewsMigrated";
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserOrdinalService userOrdinals;
+    private final long hllThreshold;
+    private final Cache<String, ViewerSet> viewerSets;
+    // Evicted sets whose write failed; retried on every flush
+    private final Map<String, ViewerSet> unsavedEvictions = new ConcurrentHashMap<>();
+
+    public UniqueViewService(MongoTemplate mongoTemplate, UserOrdinalService userOrdinals,
+            MeterRegistry meterRegistry,
+            @Value("${app.views.cache-size:20000}") long cacheSize,
+            @Value("${app.views.hll-threshold:50000}") long hllThreshold) {
+        this.mongoTemplate = mongoTemplate;
+        this.userOrdinals = userOrdinals;
+        this.hllThreshold = hllThreshold;
+        // The listener runs inside the eviction, so a reload of the same post waits for the write
+        this.viewerSets = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .evictionListener((String postId, ViewerSet set, RemovalCause cause) -> {
+                    if (set != null) {
+                        set.retire();
+                        if (!persist(set)) {
+                            unsavedEvictions.put(postId, set);
+                        }
+                    }
+                })
+                .build();
+
+        Gauge.builder("anonboard.views.cached-posts", viewerSets, Cache::estimatedSize)
+                .description("Posts whose viewer sets are held in memory")
+                .register(meterRegistry);
+        Gauge.builder("anonboard.views.unsaved-evictions", unsavedEvictions, Map::size)
+                .description("Evicted viewer sets waiting for a successful write")
+                .register(meterRegistry);
+    }
+
+    // Records the view and returns how much the post's viewCount should grow: 1 for a new viewer
+    // of an exact set, the growth of the estimate for an HLL set, and 0 for a repeat view
+    public int recordView(String postId, String userId) {
+        int ordinal = userOrdinals.ordinalOf(userId);
+        while (true) {
+            int added = viewerSets.get(postId, this::load).add(ordinal);
+            if (added >= 0) {
+                return added;
+            }
+            // The set was evicted between lookup and add; the reload includes what it persisted
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-interval-ms:30000}")
+    public void flushDirty() {
+        unsavedEvictions.forEach((postId, set) -> {
+            if (persist(set)) {
+                unsavedEvictions.remove(postId, set);
+            }
+        });
+        for (ViewerSet set : viewerSets.asMap().values()) {
+            persist(set);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+    }
+
+    // One-off: folds the legacy post_views documents into viewer buckets. Their views are
+    // already in viewCount, so they are marked as reported.
+    @PostConstruct
+    public void migrateLegacyViews() {
+        Query marker = new Query(Criteria.where("_id").is(MIGRATION_MARKER));
+        if (!mongoTemplate.collectionExists(PostView.class) || mongoTemplate.exists(marker, "counters")) {
+            return;
+        }
+
+        Map<String, RoaringBitmap> legacy = new HashMap<>();
+        Query query = new Query();
+        query.fields().include("userId").include("postId").exclude("_id");
+        try (Stream<PostView> views = mongoTemplate.stream(query, PostView.class)) {
+            for (PostView view : (Iterable<PostView>) views::iterator) {
+                legacy.computeIfAbsent(view.getPostId(), id -> new RoaringBitmap())
+                        .add(userOrdinals.ordinalOf(view.getUserId()));
+            }
+        }
+
+        // Merge rather than overwrite, so a rerun after a partial migration is harmless
+        legacy.forEach((postId, viewers) -> {
+            ViewerSet set = load(postId);
+            set.merge(viewers);
+            persist(set);
+        });
+
+        // Upsert, as another instance starting at the same time may have migrated too
+        mongoTemplate.upsert(marker, new Update().setOnInsert("at", Instant.now()), "counters");
+        log.info("Migrated post_views for {} posts into post_view_buckets", legacy.size());
+    }
+
+    private ViewerSet load(String postId) {
+        // An evicted set that could not be written holds viewers the stored bucket lacks
+        ViewerSet unsaved = unsavedEvictions.remove(postId);
+        if (unsaved != null) {
+            unsaved.revive();
+            return unsaved;
+        }
+        PostViewBucket bucket = mongoTemplate.findById(postId, PostViewBucket.class);
+        return bucket != null ? ViewerSet.from(bucket, hllThreshold) : new ViewerSet(postId, hllThreshold);
+    }
+
+    // Returns false if the set is still dirty because the write failed
+    private boolean persist(ViewerSet set) {
+        // Serialized per set so an older snapshot never overwrites a newer one
+        synchronized (set.persistLock) {
+            PostViewBucket bucket = set.snapshotIfDirty();
+            if (bucket == null) {
+                return true;
+            }
+            try {
+                for (int attempt = 1; !write(bucket); attempt++) {
+                    // Another instance wrote since this set was loaded: fold its viewers in and retry
+                    PostViewBucket stored = mongoTemplate.findById(set.postId, PostViewBucket.class);
+                    if (stored == null || attempt >= MAX_WRITE_ATTEMPTS) {
+                        set.markDirty();
+                        log.warn("Gave up persisting viewers of post {} after {} conflicts", set.postId, attempt);
+                        return false;
+                    }
+                    set.absorb(stored);
+                    bucket = set.snapshotIfDirty();
+                }
+                set.written(bucket.getVersion());
+                return true;
+            } catch (RuntimeException e) {
+                set.markDirty();
+                log.error("Failed to persist viewers of post {}", set.postId, e);
+                return false;
+            }
+        }
+    }
+
+    // Writes the bucket if the stored one is still at the version it was built from; version 0
+    // means none was stored, so it is inserted. Returns false if someone else wrote first.
+    private boolean write(PostViewBucket bucket) {
+        long expected = bucket.getVersion();
+        bucket.setVersion(expected + 1);
+        Criteria current = Criteria.where("_id").is(bucket.getPostId());
+        if (expected == 0) {
+            try {
+                mongoTemplate.insert(bucket);
+                return true;
+            } catch (DuplicateKeyException e) {
+                // Either just inserted elsewhere, or written before buckets carried a version
+                current.orOperator(Criteria.where("version").exists(false), Criteria.where("version").is(0));
+            }
+        } else {
+            current.and("version").is(expected);
+        }
+
+        Update update = new Update()
+                .set("encoding", bucket.getEncoding())
+                .set("data", bucket.getData())
+                .set("viewers", bucket.getViewers())
+                .set("reported", bucket.getReported())
+                .set("updatedAt", bucket.getUpdatedAt())
+                .set("version", bucket.getVersion());
+        return mongoTemplate.updateFirst(new Query(current), update, PostViewBucket.class).getMatchedCount() > 0;
+    }
+
+    private static final class ViewerSet {
+
+        private final String postId;
+        private final long hllThreshold;
+        private final Object persistLock = new Object();
+
+        private RoaringBitmap bitmap;
+        private HyperLogLog hll;
+        private long reported;
+        // Version of the stored bucket this set last read or wrote; 0 if none is stored
+        private long version;
+        private boolean dirty;
+        private boolean retired;
+
+        private ViewerSet(String postId, long hllThreshold) {
+            this.postId = postId;
+            this.hllThreshold = hllThreshold;
+            this.bitmap = new RoaringBitmap();
+        }
+
+        private static ViewerSet from(PostViewBucket bucket, long hllThreshold) {
+            ViewerSet set = new ViewerSet(bucket.getPostId(), hllThreshold);
+            set.reported = bucket.getReported();
+            set.version = bucket.getVersion();
+            if (bucket.getEncoding() == PostViewBucket.Encoding.HLL) {
+                set.bitmap = null;
+                set.hll = HyperLogLog.fromBytes(bucket.getData());
+            } else {
+                set.bitmap = bitmapOf(bucket);
+            }
+            return set;
+        }
+
+        private static RoaringBitmap bitmapOf(PostViewBucket bucket) {
+            RoaringBitmap bitmap = new RoaringBitmap();
+            try {
+                bitmap.deserialize(ByteBuffer.wrap(bucket.getData()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Corrupt viewer bitmap for post " + bucket.getPostId(), e);
+            }
+            return bitmap;
+        }
+
+        // Returns the viewCount increment, or -1 if the set was evicted and must be reloaded
+        private synchronized int add(int ordinal) {
+            if (retired) {
+                return -1;
+            }
+
+            if (hll == null) {
+                if (!bitmap.checkedAdd(ordinal)) {
+                    return 0;
+                }
+                dirty = true;
+                reported++;
+                if (bitmap.getLongCardinality() > hllThreshold) {
+                    promote();
+                }
+                return 1;
+            }
+
+            if (!hll.offer(ordinal)) {
+                return 0;
+            }
+            dirty = true;
+            long estimate = hll.cardinality();
+            if (estimate <= reported) {
+                return 0;
+            }
+            int delta = (int) (estimate - reported);
+            reported = estimate;
+            return delta;
+        }
+
+        private synchronized void merge(RoaringBitmap viewers) {
+            if (hll == null) {
+                bitmap.or(viewers);
+                reported = Math.max(reported, bitmap.getLongCardinality());
+                if (bitmap.getLongCardinality() > hllThreshold) {
+                    promote();
+                }
+            } else {
+                viewers.forEach((int ordinal) -> hll.offer(ordinal));
+                reported = Math.max(reported, hll.cardinality());
+            }
+            dirty = true;
+        }
+
+        // Unions in a bucket written by another instance and adopts its version. Both instances
+        // already added their own new viewers to viewCount, so reported covers the union.
+        private synchronized void absorb(PostViewBucket stored) {
+            if (stored.getEncoding() == PostViewBucket.Encoding.HLL) {
+                if (hll == null) {
+                    promote();
+                }
+                hll.merge(HyperLogLog.fromBytes(stored.getData()));
+                reported = Math.max(reported, Math.max(stored.getReported(), hll.cardinality()));
+            } else if (hll == null) {
+                bitmap.or(bitmapOf(stored));
+                reported = Math.max(reported, Math.max(stored.getReported(), bitmap.getLongCardinality()));
+                if (bitmap.getLongCardinality() > hllThreshold) {
+                    promote();
+                }
+            } else {
+                bitmapOf(stored).forEach((int ordinal) -> hll.offer(ordinal));
+                reported = Math.max(reported, Math.max(stored.getReported(), hll.cardinality()));
+            }
+            version = stored.getVersion();
+            dirty = true;
+        }
+
+        private synchronized void written(long writtenVersion) {
+            version = writtenVersion;
+        }
+
+        private void promote() {
+            hll = new HyperLogLog();
+            bitmap.forEach((int ordinal) -> hll.offer(ordinal));
+            bitmap = null;
+        }
+
+        private synchronized void retire() {
+            retired = true;
+        }
+
+        private synchronized void revive() {
+            retired = false;
+        }
+
+        private synchronized void markDirty() {
+            dirty = true;
+        }
+
+        private synchronized PostViewBucket snapshotIfDirty() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+
+            PostViewBucket.PostViewBucketBuilder bucket = PostViewBucket.builder()
+                    .postId(postId)
+                    .reported(reported)
+                    .version(version)
+                    .updatedAt(Instant.now());
+            if (hll != null) {
+                return bucket.encoding(PostViewBucket.Encoding.HLL)
+                        .data(hll.toBytes())
+                        .viewers(hll.cardinality())
+                        .build();
+            }
+
+            bitmap.runOptimize();
+            ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+            bitmap.serialize(buffer);
+            return bucket.encoding(PostViewBucket.Encoding.BITMAP)
+                    .data(buffer.array())
+                    .viewers(bitmap.getLongCardinality())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.anonboard.service;
+
+import com.anonboard.model.User;
+import com.anonboard.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Bounded, TTL-evicting cache of users keyed by email and id.
+// Anything that writes a user document must call evict() afterwards.
+// Entries hold no password hash, so a credential change on another instance can never be checked
+// against a stale copy; logins load the user from Mongo instead. Each read returns a fresh copy,
+// so a caller mutating its User cannot change what other requests see.
+@Service
+public class UserCacheService {
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> byEmail;
+    private final Cache<String, User> byId;
+
+    public UserCacheService(UserRepository userRepository,
+            @Value("${app.cache.user.max-size:10000}") long maxSize,
+            @Value("${app.cache.user.ttl-seconds:60}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public Optional<User> findByEmail(String email) {
+        User cached = byEmail.getIfPresent(email);
+        if (cached != null) {
+            return Optional.of(cached.toBuilder().build());
+        }
+
+        Optional<User> user = userRepository.findByEmail(email);
+        user.ifPresent(this::put);
+        return user.map(UserCacheService::withoutCredentials);
+    }
+
+    public Optional<User> findById(String id) {
+        User cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached.toBuilder().build());
+        }
+
+        Optional<User> user = userRepository.findById(id);
+        user.ifPresent(this::put);
+        return user.map(UserCacheService::withoutCredentials);
+    }
+
+    public void put(User user) {
+        User cached = withoutCredentials(user);
+        byEmail.put(cached.getEmail(), cached);
+        byId.put(cached.getId(), cached);
+    }
+
+    public void evict(User user) {
+        byEmail.invalidate(user.getEmail());
+        byId.invalidate(user.getId());
+    }
+
+    private static User withoutCredentials(User user) {
+        return user.toBuilder().passwordHash(null).build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.anonboard.service;
+
+import com.anonboard.model.UserOrdinal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+// Assigns each user a small, dense, never-reused integer. Ordinals come from a sequence in the
+// counters collection and are cached, since they never change once assigned.
+@Service
+public class UserOrdinalService {
+
+    private static final String SEQUENCE_ID = "userOrdinal";
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, Integer> ordinals;
+
+    public UserOrdinalService(MongoTemplate mongoTemplate,
+            @Value("${app.views.ordinal-cache-size:100000}") long cacheSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.ordinals = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public int ordinalOf(String userId) {
+        return ordinals.get(userId, this::loadOrAssign);
+    }
+
+    private int loadOrAssign(String userId) {
+        UserOrdinal existing = mongoTemplate.findById(userId, UserOrdinal.class);
+        if (existing != null) {
+            return existing.getOrdinal();
+        }
+
+        try {
+            UserOrdinal assigned = mongoTemplate.insert(new UserOrdinal(userId, nextOrdinal()));
+            return assigned.getOrdinal();
+        } catch (DuplicateKeyException e) {
+            // Another instance assigned one first; the sequence value we took is simply skipped
+            return mongoTemplate.findById(userId, UserOrdinal.class).getOrdinal();
+        }
+    }
+
+    private int nextOrdinal() {
+        Document sequence = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(SEQUENCE_ID)),
+                new Update().inc("seq", 1),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Document.class, "counters");
+        return ((Number) sequence.get("seq")).intValue();
+    }
+}
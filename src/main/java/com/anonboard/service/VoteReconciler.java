@@ -0,0 +1,156 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Comment;
+import com.anonboard.model.Vote;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Repairs comment voteCounts that missed their delta, e.g. buffered deltas lost when an instance
+// died before flushing them. The votes themselves are the log: comments voted on since the
+// checkpoint get their count recomputed from the votes and corrected, so a run is idempotent.
+// Comments still receiving votes are left to the next run. The checkpoint is persisted, so the
+// first run after a restart replays everything since the last completed run.
+//
+// Only votes older than settle are looked at, and settle must exceed how long any instance can
+// hold a delta unwritten (CommentVoteCounterService.maxBufferedMillis), so every delta counted
+// here is already in voteCount or has been dropped. The constructor refuses shorter settings.
+@Service
+@Slf4j
+public class VoteReconciler {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String CHECKPOINTS = "reconcile_checkpoints";
+    private static final String CHECKPOINT_ID = "comment_votes";
+
+    private final MongoTemplate mongoTemplate;
+    private final CommentVoteCounterService voteCounters;
+    private final Duration settle;
+    private final Duration maxLookback;
+    private final Counter corrected;
+
+    // Votes updated after this were not yet checked; loaded from the checkpoint on the first run
+    private Instant checkedUntil;
+
+    public VoteReconciler(MongoTemplate mongoTemplate, CommentVoteCounterService voteCounters,
+            MeterRegistry meterRegistry,
+            @Value("${app.votes.reconcile.settle-seconds:30}") long settleSeconds,
+            @Value("${app.votes.reconcile.max-lookback-minutes:1440}") long maxLookbackMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.voteCounters = voteCounters;
+        this.settle = Duration.ofSeconds(settleSeconds);
+        if (settle.toMillis() <= voteCounters.maxBufferedMillis()) {
+            throw new IllegalStateException("app.votes.reconcile.settle-seconds (" + settleSeconds
+                    + "s) must exceed the vote counter flush interval plus retry window ("
+                    + voteCounters.maxBufferedMillis() + " ms)");
+        }
+        this.maxLookback = Duration.ofMinutes(maxLookbackMinutes);
+        this.corrected = Counter.builder("anonboard.votes.reconciled")
+                .description("Comment vote counts corrected by reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.votes.reconcile.interval-ms:300000}")
+    public void reconcile() {
+        // Votes younger than settle may still have their delta buffered
+        Instant until = Instant.now().minus(settle);
+        if (checkedUntil == null) {
+            checkedUntil = loadCheckpoint(until);
+        }
+        if (!until.isAfter(checkedUntil)) {
+            return;
+        }
+
+        Query recent = new Query(Criteria.where("targetType").is(Vote.TargetType.COMMENT)
+                .and("updatedAt").gt(checkedUntil).lte(until));
+        List<String> commentIds = mongoTemplate.findDistinct(recent, "targetId", Vote.class, String.class);
+
+        int fixed = 0;
+        for (int i = 0; i < commentIds.size(); i += BATCH_SIZE) {
+            fixed += reconcile(commentIds.subList(i, Math.min(i + BATCH_SIZE, commentIds.size())), until);
+        }
+        checkedUntil = until;
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(CHECKPOINT_ID)),
+                new Update().max("checkedUntil", until), CHECKPOINTS);
+
+        if (fixed > 0) {
+            corrected.increment(fixed);
+            log.warn("Corrected vote counts of {} comments", fixed);
+        }
+    }
+
+    private Instant loadCheckpoint(Instant until) {
+        Instant earliest = until.minus(maxLookback);
+        Document checkpoint = mongoTemplate.findById(CHECKPOINT_ID, Document.class, CHECKPOINTS);
+        Date stored = checkpoint != null ? checkpoint.getDate("checkedUntil") : null;
+        return stored != null && stored.toInstant().isAfter(earliest) ? stored.toInstant() : earliest;
+    }
+
+    private int reconcile(List<String> candidates, Instant until) {
+        // Counts with a delta still buffered here, or votes after the window, are not settled yet;
+        // those newer votes put the comment in the next window. Deltas buffered on other
+        // instances for votes in the window are ruled out by the settle bound.
+        Query active = new Query(Criteria.where("targetType").is(Vote.TargetType.COMMENT)
+                .and("targetId").in(candidates).and("updatedAt").gt(until));
+        Set<String> unsettled = new HashSet<>(mongoTemplate.findDistinct(active, "targetId", Vote.class, String.class));
+        List<String> commentIds = candidates.stream()
+                .filter(id -> !unsettled.contains(id) && voteCounters.pending(id) == 0)
+                .toList();
+        if (commentIds.isEmpty()) {
+            return 0;
+        }
+
+        Aggregation sums = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("targetType").is(Vote.TargetType.COMMENT.name())
+                        .and("targetId").in(commentIds)),
+                Aggregation.group("targetId").sum("voteType").as("total"));
+        Map<String, Integer> totals = new HashMap<>();
+        for (Document sum : mongoTemplate.aggregate(sums, Vote.class, Document.class)) {
+            totals.put(sum.getString("_id"), ((Number) sum.get("total")).intValue());
+        }
+
+        Query query = new Query(Criteria.where("_id").in(commentIds.stream().map(VoteReconciler::toId).toList()));
+        query.fields().include("voteCount");
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Comment.class);
+        int fixed = 0;
+        for (Comment comment : mongoTemplate.find(query, Comment.class)) {
+            int expected = totals.getOrDefault(comment.getId(), 0);
+            if (comment.getVoteCount() != expected) {
+                // Relative to the count read, and only if it is unchanged: a flush of a newer vote
+                // landing in between makes this a no-op and leaves the comment to the next run
+                bulk.updateOne(new Query(Criteria.where("_id").is(toId(comment.getId()))
+                                .and("voteCount").is(comment.getVoteCount())),
+                        new Update().inc("voteCount", expected - comment.getVoteCount()));
+                fixed++;
+            }
+        }
+        if (fixed > 0) {
+            bulk.execute();
+        }
+        return fixed;
+    }
+
+    private static Object toId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
@@ -3,78 +3,124 @@ package com.anonboard.service;
 import com.anonboard.exception.BadRequestException;
 import com.anonboard.model.Vote;
 import com.anonboard.repository.CommentRepository;
-import com.anonboard.repository.VoteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
+// Comment votes in one round trip: a findAndModify upsert applies the toggle (add, flip or
+// remove) and returns the previous state, and the difference goes to the write-behind
+// CommentVoteCounterService. Removed votes stay as voteType 0 tombstones so every transition is
+// the same upsert. Counts that miss their delta are recomputed from the votes by VoteReconciler.
 @Service
 public class VoteService {
 
-    private final VoteRepository voteRepository;
+    private final MongoTemplate mongoTemplate;
     private final CommentRepository commentRepository;
+    private final CommentVoteCounterService voteCounters;
+    private final VoteStateCache voteStates;
+    // Comments are only ever soft-deleted, so once seen a comment id stays valid for voting
+    private final Cache<String, Boolean> knownComments;
 
-    public VoteService(VoteRepository voteRepository, CommentRepository commentRepository) {
-        this.voteRepository = voteRepository;
+    public VoteService(MongoTemplate mongoTemplate, CommentRepository commentRepository,
+            CommentVoteCounterService voteCounters, VoteStateCache voteStates,
+            @Value("${app.votes.known-comments-cache-size:100000}") long knownCommentsCacheSize) {
+        this.mongoTemplate = mongoTemplate;
         this.commentRepository = commentRepository;
+        this.voteCounters = voteCounters;
+        this.voteStates = voteStates;
+        this.knownComments = Caffeine.newBuilder()
+                .maximumSize(knownCommentsCacheSize)
+                .build();
     }
 
     // Voting is now only for comments, not posts
-    @Transactional
     public VoteResult voteOnComment(String commentId, int voteType, String userId) {
         if (voteType != 1 && voteType != -1) {
             throw new BadRequestException("Vote type must be 1 (upvote) or -1 (downvote)");
         }
 
-        if (!commentRepository.existsById(commentId)) {
-            throw new BadRequestException("Comment not found");
+        if (knownComments.getIfPresent(commentId) == null) {
+            if (!commentRepository.existsById(commentId)) {
+                throw new BadRequestException("Comment not found");
+            }
+            knownComments.put(commentId, Boolean.TRUE);
         }
 
-        Optional<Vote> existingVote = voteRepository.findByUserIdAndTargetTypeAndTargetId(
-                userId, Vote.TargetType.COMMENT, commentId);
-
-        if (existingVote.isPresent()) {
-            Vote vote = existingVote.get();
-
-            if (vote.getVoteType() == voteType) {
-                // Same vote again = remove vote
-                voteRepository.delete(vote);
-                commentRepository.incrementVoteCount(commentId, -voteType);
-                return new VoteResult(VoteAction.REMOVED, null);
-            } else {
-                // Opposite vote = change vote (delta of 2)
-                vote.setVoteType(voteType);
-                voteRepository.save(vote);
-                commentRepository.incrementVoteCount(commentId, voteType * 2);
-                return new VoteResult(VoteAction.CHANGED, voteType);
-            }
-        } else {
-            // New vote
-            Vote newVote = Vote.builder()
-                    .userId(userId)
-                    .targetType(Vote.TargetType.COMMENT)
-                    .targetId(commentId)
-                    .voteType(voteType)
-                    .build();
-            voteRepository.save(newVote);
-            commentRepository.incrementVoteCount(commentId, voteType);
-            return new VoteResult(VoteAction.ADDED, voteType);
+        int previous = toggle(commentId, voteType, userId);
+        // Same vote again = remove vote; opposite vote = change vote
+        int current = previous == voteType ? 0 : voteType;
+
+        voteCounters.add(commentId, current - previous);
+        voteStates.onVote(userId, commentId, current != 0 ? current : null);
+
+        if (current == 0) {
+            return new VoteResult(VoteAction.REMOVED, null);
         }
+        return new VoteResult(previous == 0 ? VoteAction.ADDED : VoteAction.CHANGED, current);
     }
 
-    @Transactional
     public void removeCommentVote(String commentId, String userId) {
-        Optional<Vote> existingVote = voteRepository.findByUserIdAndTargetTypeAndTargetId(
-                userId, Vote.TargetType.COMMENT, commentId);
+        Query query = voteQuery(commentId, userId).addCriteria(Criteria.where("voteType").ne(0));
+        query.fields().include("voteType");
+        Vote removed = mongoTemplate.findAndModify(query,
+                new Update().set("voteType", 0).set("updatedAt", new Date()),
+                FindAndModifyOptions.options().returnNew(false), Vote.class);
 
-        if (existingVote.isPresent()) {
-            Vote vote = existingVote.get();
-            voteRepository.delete(vote);
-            commentRepository.incrementVoteCount(commentId, -vote.getVoteType());
+        if (removed != null) {
+            voteCounters.add(commentId, -removed.getVoteType());
+            voteStates.onVote(userId, commentId, null);
         }
     }
 
+    public Map<String, Integer> getVoteStates(List<String> commentIds, String userId) {
+        return voteStates.getVoteStates(userId, new LinkedHashSet<>(commentIds));
+    }
+
+    // Applies the vote as a pipeline upsert and returns the vote it replaced (0 if none)
+    private int toggle(String commentId, int voteType, String userId) {
+        Date now = new Date();
+        Document set = new Document("voteType", new Document("$cond", List.of(
+                new Document("$eq", List.of(new Document("$ifNull", List.of("$voteType", 0)), voteType)),
+                0,
+                voteType)))
+                .append("createdAt", new Document("$ifNull", List.of("$createdAt", now)))
+                .append("updatedAt", now);
+        AggregationUpdate update = AggregationUpdate.from(List.of(context -> new Document("$set", set)));
+
+        Query query = voteQuery(commentId, userId);
+        query.fields().include("voteType");
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(false);
+
+        Vote previous;
+        try {
+            previous = mongoTemplate.findAndModify(query, update, options, Vote.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent first vote by the same user inserted the document; this one now updates it
+            previous = mongoTemplate.findAndModify(query, update, options, Vote.class);
+        }
+        return previous != null ? previous.getVoteType() : 0;
+    }
+
+    private static Query voteQuery(String commentId, String userId) {
+        return new Query(Criteria.where("userId").is(userId)
+                .and("targetType").is(Vote.TargetType.COMMENT)
+                .and("targetId").is(commentId));
+    }
+
     public enum VoteAction {
         ADDED, CHANGED, REMOVED
     }
@@ -0,0 +1,110 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Vote;
+import com.anonboard.repository.VoteRepository;
+import com.anonboard.util.VoteStateSet;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+// The viewer's own votes on comments, for hydrating userVote on comment lists and for the bulk
+// vote-state endpoint. Ids are resolved from a compact per-user VoteStateSet of recent votes and
+// lookups; whatever is missing is fetched in one $in query on the unique_vote index. Votes cast
+// through this instance are written through, votes cast through another instance show up once
+// the user's entry expires.
+@Service
+public class VoteStateCache {
+
+    // "No vote", cached so comments the user never voted on are not looked up again
+    private static final int NONE = 0;
+
+    private final VoteRepository voteRepository;
+    private final int maxPerUser;
+    // User id -> votes known for that user; replaced as a whole on every change
+    private final Cache<String, AtomicReference<VoteStateSet>> users;
+
+    public VoteStateCache(VoteRepository voteRepository,
+            @Value("${app.votes.state-cache.max-users:20000}") long maxUsers,
+            @Value("${app.votes.state-cache.max-per-user:5000}") int maxPerUser,
+            @Value("${app.votes.state-cache.ttl-seconds:120}") long ttlSeconds) {
+        this.voteRepository = voteRepository;
+        this.maxPerUser = maxPerUser;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    // The user's vote on each comment that has one; comments without a vote are absent
+    public Map<String, Integer> getVotes(String userId, Collection<String> commentIds) {
+        Map<String, Integer> votes = getVoteStates(userId, commentIds);
+        votes.values().removeIf(vote -> vote == NONE);
+        return votes;
+    }
+
+    // The user's vote on every requested comment: 1, -1, or 0 for none
+    public Map<String, Integer> getVoteStates(String userId, Collection<String> commentIds) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        if (userId == null || commentIds.isEmpty()) {
+            return result;
+        }
+
+        AtomicReference<VoteStateSet> known = users.get(userId, id -> new AtomicReference<>(VoteStateSet.EMPTY));
+        VoteStateSet snapshot = known.get();
+        List<String> missing = new ArrayList<>();
+        for (String commentId : commentIds) {
+            Integer vote = ObjectId.isValid(commentId) ? snapshot.get(new ObjectId(commentId)) : null;
+            if (vote == null) {
+                missing.add(commentId);
+            } else {
+                result.put(commentId, vote);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<String, Integer> found = new HashMap<>();
+        for (Vote vote : voteRepository.findByUserIdAndTargetTypeAndTargetIdIn(userId, Vote.TargetType.COMMENT,
+                missing)) {
+            found.put(vote.getTargetId(), vote.getVoteType());
+        }
+        Map<ObjectId, Integer> lookups = new HashMap<>();
+        for (String commentId : missing) {
+            int vote = found.getOrDefault(commentId, NONE);
+            result.put(commentId, vote);
+            if (ObjectId.isValid(commentId)) {
+                lookups.put(new ObjectId(commentId), vote);
+            }
+        }
+        if (snapshot.size() + lookups.size() <= maxPerUser) {
+            // A vote recorded while the query ran is newer than what it read, so it is kept
+            known.updateAndGet(set -> set.with(lookups, false));
+        }
+        return result;
+    }
+
+    public Integer getVote(String userId, String commentId) {
+        return getVotes(userId, List.of(commentId)).get(commentId);
+    }
+
+    // Called after a vote is written; currentVote is null when the vote was removed
+    public void onVote(String userId, String commentId, Integer currentVote) {
+        AtomicReference<VoteStateSet> known = users.getIfPresent(userId);
+        if (known != null && ObjectId.isValid(commentId)) {
+            Map<ObjectId, Integer> vote = Map.of(new ObjectId(commentId), currentVote != null ? currentVote : NONE);
+            known.updateAndGet(set -> set.with(vote, true));
+        }
+    }
+}
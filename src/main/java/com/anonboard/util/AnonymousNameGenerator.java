@@ -1,11 +1,27 @@
 package com.anonboard.util;
 
+import com.anonboard.model.User;
 import com.anonboard.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
 
 @Component
+@Slf4j
 public class AnonymousNameGenerator {
 
     private static final String[] PREFIXES = {
@@ -18,33 +34,133 @@ public class AnonymousNameGenerator {
 
     private final SecureRandom random = new SecureRandom();
     private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
 
-    public AnonymousNameGenerator(UserRepository userRepository) {
+    // Names already taken; a negative answer means a candidate is free without asking Mongo
+    private final BloomFilter takenNames;
+
+    // Pre-verified free names handed out by generateUniqueName()
+    private final BlockingQueue<String> pool;
+    private final Set<String> pooledNames = ConcurrentHashMap.newKeySet();
+    private final int refillThreshold;
+
+    public AnonymousNameGenerator(UserRepository userRepository, MongoTemplate mongoTemplate,
+            @Value("${app.anonymous-names.pool-size:200}") int poolSize,
+            @Value("${app.anonymous-names.refill-threshold:50}") int refillThreshold,
+            @Value("${app.anonymous-names.expected-users:1000000}") long expectedUsers,
+            @Value("${app.anonymous-names.false-positive-rate:0.01}") double falsePositiveRate) {
         this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.takenNames = new BloomFilter(expectedUsers, falsePositiveRate);
+        this.pool = new LinkedBlockingQueue<>(poolSize);
+        this.refillThreshold = refillThreshold;
+    }
+
+    @PostConstruct
+    public void loadTakenNames() {
+        Query query = new Query();
+        query.fields().include("anonymousName").exclude("_id");
+
+        long count = 0;
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                if (user.getAnonymousName() != null) {
+                    takenNames.put(user.getAnonymousName());
+                    count++;
+                }
+            }
+        }
+        log.info("Loaded {} anonymous names into the taken-name filter", count);
+
+        refillPool();
     }
 
     public String generateUniqueName() {
-        String name;
-        int attempts = 0;
+        // Polling is atomic, so two concurrent signups never receive the same pooled name
+        String name = pool.poll();
+        if (name != null) {
+            pooledNames.remove(name);
+            takenNames.put(name);
+            return name;
+        }
+
+        return generateDirectly();
+    }
+
+    @Scheduled(fixedDelayString = "${app.anonymous-names.refill-interval-ms:5000}")
+    public void refillPool() {
+        if (pool.size() >= refillThreshold) {
+            return;
+        }
+
+        int wanted = pool.remainingCapacity();
+        for (int round = 0; round < 5 && wanted > 0; round++) {
+            // Candidates the filter has never seen are free; only false positives need a query
+            Set<String> candidates = new LinkedHashSet<>();
+            Set<String> maybeTaken = new HashSet<>();
+            for (int i = 0; i < wanted * 2; i++) {
+                String candidate = randomName(4);
+                if (pooledNames.contains(candidate)) {
+                    continue;
+                }
+                if (takenNames.mightContain(candidate)) {
+                    maybeTaken.add(candidate);
+                }
+                candidates.add(candidate);
+            }
+
+            if (!maybeTaken.isEmpty()) {
+                Query query = new Query(Criteria.where("anonymousName").in(maybeTaken));
+                query.fields().include("anonymousName");
+                for (User user : mongoTemplate.find(query, User.class)) {
+                    candidates.remove(user.getAnonymousName());
+                }
+            }
+
+            for (String candidate : candidates) {
+                if (wanted == 0) {
+                    break;
+                }
+                if (pooledNames.add(candidate)) {
+                    if (pool.offer(candidate)) {
+                        wanted--;
+                    } else {
+                        pooledNames.remove(candidate);
+                        wanted = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    // Used when the pool is drained: check candidates one at a time, skipping the query
+    // whenever the filter already proves a name is free
+    private String generateDirectly() {
         int maxAttempts = 100;
 
-        do {
-            String prefix = PREFIXES[random.nextInt(PREFIXES.length)];
-            String suffix = generateRandomSuffix(4);
-            name = prefix + "_" + suffix;
-            attempts++;
-
-            if (attempts >= maxAttempts) {
-                // Fall back to longer suffix
-                suffix = generateRandomSuffix(6);
-                name = prefix + "_" + suffix;
-                break;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            String name = randomName(4);
+            if (pooledNames.contains(name)) {
+                continue;
+            }
+            if (!takenNames.mightContain(name) || !userRepository.existsByAnonymousName(name)) {
+                takenNames.put(name);
+                return name;
             }
-        } while (userRepository.existsByAnonymousName(name));
+        }
 
+        // Fall back to longer suffix
+        String name = randomName(6);
+        takenNames.put(name);
+        log.warn("Anonymous name space is crowded, fell back to a long suffix after {} attempts", maxAttempts);
         return name;
     }
 
+    private String randomName(int suffixLength) {
+        String prefix = PREFIXES[random.nextInt(PREFIXES.length)];
+        return prefix + "_" + generateRandomSuffix(suffixLength);
+    }
+
     private String generateRandomSuffix(int length) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < length; i++) {
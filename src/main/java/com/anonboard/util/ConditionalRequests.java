@@ -0,0 +1,54 @@
+package com.anonboard.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+
+// If-None-Match / If-Modified-Since checks for GET handlers that can tell from an in-memory
+// validator whether the client's copy is current, before loading or serializing anything.
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    public static boolean notModified(HttpServletRequest request, String etag) {
+        return notModified(request, etag, null);
+    }
+
+    // If-None-Match takes precedence; If-Modified-Since is only consulted when it is absent
+    public static boolean notModified(HttpServletRequest request, String etag, Instant lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return etag != null && matches(ifNoneMatch, etag);
+        }
+
+        if (lastModified == null) {
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have second precision
+        return ifModifiedSince >= 0 && lastModified.getEpochSecond() <= ifModifiedSince / 1000;
+    }
+
+    // Weak comparison, as RFC 9110 requires for If-None-Match
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String expected = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,57 @@
+package com.anonboard.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Count-min sketch for string keys. estimate() never undercounts; with probability 1 - delta it
+// overcounts by at most epsilon times the total added. Updates are lock-free.
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int width, int depth) {
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    public static CountMinSketch withErrorBounds(double epsilon, double delta) {
+        int width = (int) Math.ceil(Math.E / epsilon);
+        int depth = (int) Math.ceil(Math.log(1 / delta));
+        return new CountMinSketch(width, Math.max(1, depth));
+    }
+
+    // Adds count to the key and returns its new estimate
+    public long add(String key, long count) {
+        long hash = Hashing.fnv1a64(key);
+        long h1 = Hashing.mix64(hash);
+        long h2 = Hashing.mix64(hash ^ 0x9E3779B97F4A7C15L) | 1;
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = (int) Math.floorMod(h1 + row * h2, (long) width);
+            estimate = Math.min(estimate, counters.addAndGet(row * width + column, count));
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long hash = Hashing.fnv1a64(key);
+        long h1 = Hashing.mix64(hash);
+        long h2 = Hashing.mix64(hash ^ 0x9E3779B97F4A7C15L) | 1;
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = (int) Math.floorMod(h1 + row * h2, (long) width);
+            estimate = Math.min(estimate, counters.get(row * width + column));
+        }
+        return estimate;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+}
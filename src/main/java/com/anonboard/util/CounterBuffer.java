@@ -0,0 +1,133 @@
+package com.anonboard.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// In-memory accumulator for write-behind counters. Each key holds one LongAdder per field, so
+// concurrent increments of the same hot key spread across cells instead of contending.
+//
+// Entries that stay idle for a whole flush are unlinked from the map but drained once more on
+// the following flush, so an increment racing with the unlink is still picked up. The one gap:
+// an adding thread that looked the entry up before the unlink and stalls past that second drain
+// adds to an orphaned entry, and that increment is lost. Counters fed from here must tolerate
+// that, or be repairable from another source.
+public class CounterBuffer {
+
+    private final int fields;
+    private final ConcurrentHashMap<String, LongAdder[]> pending = new ConcurrentHashMap<>();
+    private List<Map.Entry<String, LongAdder[]>> retiring = new ArrayList<>();
+
+    // Deltas taken by the current flush, still counted as pending until the write completes
+    private volatile Map<String, long[]> inFlight = Map.of();
+
+    // Time of the oldest increment not yet flushed, 0 when there is none
+    private final AtomicLong oldestPendingMillis = new AtomicLong();
+
+    public CounterBuffer(int fields) {
+        this.fields = fields;
+    }
+
+    public void add(String key, int field, long delta) {
+        LongAdder[] adders = pending.get(key);
+        if (adders == null) {
+            adders = pending.computeIfAbsent(key, k -> newAdders());
+        }
+        adders[field].add(delta);
+
+        if (oldestPendingMillis.get() == 0) {
+            oldestPendingMillis.compareAndSet(0, System.currentTimeMillis());
+        }
+    }
+
+    // Delta not yet visible in the persisted document
+    public long pending(String key, int field) {
+        long delta = 0;
+        LongAdder[] adders = pending.get(key);
+        if (adders != null) {
+            delta += adders[field].sum();
+        }
+        long[] flushing = inFlight.get(key);
+        if (flushing != null) {
+            delta += flushing[field];
+        }
+        return delta;
+    }
+
+    // Number of keys with buffered deltas
+    public int size() {
+        return pending.size();
+    }
+
+    public long getOldestPendingMillis() {
+        return oldestPendingMillis.get();
+    }
+
+    // Takes every buffered delta and hands the non-zero ones to the writer. Flushes must not run
+    // concurrently. If the writer throws, the deltas are put back and the exception propagates.
+    public synchronized int flush(Consumer<Map<String, long[]>> writer) {
+        oldestPendingMillis.set(0);
+
+        Map<String, long[]> batch = new HashMap<>();
+        for (Map.Entry<String, LongAdder[]> entry : retiring) {
+            collect(entry.getKey(), entry.getValue(), batch);
+        }
+        retiring = new ArrayList<>();
+
+        for (Map.Entry<String, LongAdder[]> entry : pending.entrySet()) {
+            if (!collect(entry.getKey(), entry.getValue(), batch)
+                    && pending.remove(entry.getKey(), entry.getValue())) {
+                retiring.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        inFlight = batch;
+        try {
+            writer.accept(batch);
+        } catch (RuntimeException e) {
+            batch.forEach((key, deltas) -> {
+                for (int field = 0; field < fields; field++) {
+                    if (deltas[field] != 0) {
+                        add(key, field, deltas[field]);
+                    }
+                }
+            });
+            throw e;
+        } finally {
+            inFlight = Map.of();
+        }
+        return batch.size();
+    }
+
+    // Adds the entry's current deltas to the batch; false when there was nothing to take
+    private boolean collect(String key, LongAdder[] adders, Map<String, long[]> batch) {
+        long[] deltas = null;
+        for (int field = 0; field < fields; field++) {
+            long delta = adders[field].sumThenReset();
+            if (delta != 0) {
+                if (deltas == null) {
+                    deltas = batch.computeIfAbsent(key, k -> new long[fields]);
+                }
+                deltas[field] += delta;
+            }
+        }
+        return deltas != null;
+    }
+
+    private LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[fields];
+        for (int i = 0; i < fields; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
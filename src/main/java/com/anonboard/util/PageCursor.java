@@ -0,0 +1,51 @@
+package com.anonboard.util;
+
+import com.anonboard.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+// Opaque (sortKey, _id) position used by keyset pagination, encoded as URL-safe base64
+public record PageCursor(Object sortValue, String id) {
+
+    public String encode() {
+        String value;
+        if (sortValue == null) {
+            value = "-:";
+        } else if (sortValue instanceof Instant instant) {
+            value = "t:" + instant.toEpochMilli();
+        } else if (sortValue instanceof Double || sortValue instanceof Float) {
+            // Exact bit pattern, so the next page starts precisely after a fractional score
+            value = "d:" + Long.toHexString(Double.doubleToLongBits(((Number) sortValue).doubleValue()));
+        } else if (sortValue instanceof Number number) {
+            value = "n:" + number.longValue();
+        } else {
+            value = "s:" + sortValue;
+        }
+
+        String raw = value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            String value = raw.substring(0, separator);
+            String id = raw.substring(separator + 1);
+
+            Object sortValue = switch (value.substring(0, 2)) {
+                case "t:" -> Instant.ofEpochMilli(Long.parseLong(value.substring(2)));
+                case "d:" -> Double.longBitsToDouble(Long.parseUnsignedLong(value.substring(2), 16));
+                case "n:" -> Long.parseLong(value.substring(2));
+                case "s:" -> value.substring(2);
+                case "-:" -> null;
+                default -> throw new IllegalArgumentException("Unknown cursor type");
+            };
+            return new PageCursor(sortValue, id);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.anonboard.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Character trie mapping keys to values, for prefix lookups. Not thread-safe for writes;
+// build it fully, then share it read-only.
+public class PrefixTrie<V> {
+
+    private final Node<V> root = new Node<>();
+
+    public void put(String key, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node<>());
+        }
+        node.value = value;
+    }
+
+    // Values of keys starting with the prefix, in key order, stopping after limit
+    public List<V> withPrefix(String prefix, int limit) {
+        List<V> values = new ArrayList<>();
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null) {
+            return values;
+        }
+
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty() && values.size() < limit) {
+            Node<V> current = stack.pop();
+            if (current.value != null) {
+                values.add(current.value);
+            }
+            List<Node<V>> children = new ArrayList<>(current.children.values());
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return values;
+    }
+
+    private static final class Node<V> {
+        private final Map<Character, Node<V>> children = new TreeMap<>();
+        private V value;
+    }
+}
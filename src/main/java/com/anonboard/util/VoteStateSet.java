@@ -0,0 +1,134 @@
+package com.anonboard.util;
+
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+// Immutable record of one user's votes on a set of comments. Comment ids (ObjectIds) are packed
+// into sorted parallel arrays, 12 bytes per id, with two bitsets marking up- and downvotes; an id
+// in neither bitset is known to have no vote. About 12 bytes per comment instead of a map entry
+// holding two objects and a 24-character string.
+public final class VoteStateSet {
+
+    public static final VoteStateSet EMPTY = new VoteStateSet(new long[0], new int[0], new BitSet(), new BitSet());
+
+    // ObjectId bytes 0-7 and 8-11, sorted by (high, low)
+    private final long[] high;
+    private final int[] low;
+    private final BitSet up;
+    private final BitSet down;
+
+    private VoteStateSet(long[] high, int[] low, BitSet up, BitSet down) {
+        this.high = high;
+        this.low = low;
+        this.up = up;
+        this.down = down;
+    }
+
+    public int size() {
+        return high.length;
+    }
+
+    // 1 or -1, 0 when the user is known not to have voted, null when the comment is not in the set
+    public Integer get(ObjectId commentId) {
+        ByteBuffer bytes = ByteBuffer.wrap(commentId.toByteArray());
+        int index = indexOf(bytes.getLong(), bytes.getInt());
+        if (index < 0) {
+            return null;
+        }
+        return up.get(index) ? 1 : down.get(index) ? -1 : 0;
+    }
+
+    // A copy with the given votes (1, -1 or 0) merged in. With overwrite false, comments already in
+    // the set keep their vote, so a lookup result cannot replace a newer vote recorded meanwhile.
+    public VoteStateSet with(Map<ObjectId, Integer> votes, boolean overwrite) {
+        List<Map.Entry<ObjectId, Integer>> updates = new ArrayList<>(votes.entrySet());
+        // ObjectId order is unsigned byte order, the same order compare() gives the packed arrays
+        updates.sort(Map.Entry.comparingByKey());
+
+        int capacity = high.length + updates.size();
+        long[] mergedHigh = new long[capacity];
+        int[] mergedLow = new int[capacity];
+        BitSet mergedUp = new BitSet(capacity);
+        BitSet mergedDown = new BitSet(capacity);
+
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < high.length || j < updates.size()) {
+            int cmp;
+            long[] update = j < updates.size() ? key(updates.get(j).getKey()) : null;
+            if (update == null) {
+                cmp = -1;
+            } else if (i >= high.length) {
+                cmp = 1;
+            } else {
+                cmp = compare(high[i], low[i], update[0], (int) update[1]);
+            }
+
+            int vote;
+            if (cmp < 0 || (cmp == 0 && !overwrite)) {
+                mergedHigh[n] = high[i];
+                mergedLow[n] = low[i];
+                vote = up.get(i) ? 1 : down.get(i) ? -1 : 0;
+                i++;
+                if (cmp == 0) {
+                    j++;
+                }
+            } else {
+                mergedHigh[n] = update[0];
+                mergedLow[n] = (int) update[1];
+                vote = updates.get(j).getValue();
+                j++;
+                if (cmp == 0) {
+                    i++;
+                }
+            }
+            if (vote > 0) {
+                mergedUp.set(n);
+            } else if (vote < 0) {
+                mergedDown.set(n);
+            }
+            n++;
+        }
+
+        if (n < capacity) {
+            mergedHigh = Arrays.copyOf(mergedHigh, n);
+            mergedLow = Arrays.copyOf(mergedLow, n);
+        }
+        return new VoteStateSet(mergedHigh, mergedLow, mergedUp, mergedDown);
+    }
+
+    private int indexOf(long h, int l) {
+        int from = 0;
+        int to = high.length - 1;
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            int cmp = compare(high[mid], low[mid], h, l);
+            if (cmp < 0) {
+                from = mid + 1;
+            } else if (cmp > 0) {
+                to = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int compare(long h1, int l1, long h2, int l2) {
+        int cmp = Long.compareUnsigned(h1, h2);
+        return cmp != 0 ? cmp : Integer.compareUnsigned(l1, l2);
+    }
+
+    // (high, low) of an id; low is widened to a long only to return both in one array
+    private static long[] key(ObjectId id) {
+        ByteBuffer bytes = ByteBuffer.wrap(id.toByteArray());
+        return new long[] { bytes.getLong(), bytes.getInt() };
+    }
+}
@@ -0,0 +1,74 @@
+package com.anonboard.benchmark;
+
+import com.anonboard.model.User;
+import com.anonboard.security.JwtTokenProvider;
+import com.anonboard.security.UserPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// What JwtAuthenticationFilter does per request: parse the bearer token and build the principal
+// from its claims. cold runs against a provider with no claims cache, so every call pays the
+// signature check and JSON parse; cached runs the same tokens through a provider that has
+// verified them once already.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hmac-sha-256";
+    private static final long EXPIRATION_MILLIS = 3_600_000;
+    // Distinct sessions cycled through, as many users hit the API at once
+    private static final int TOKENS = 1024;
+
+    private final String[] tokens = new String[TOKENS];
+    private int next;
+
+    private JwtTokenProvider uncached;
+    private JwtTokenProvider cached;
+
+    @Setup(Level.Trial)
+    public void issueTokens() {
+        uncached = new JwtTokenProvider(SECRET, EXPIRATION_MILLIS, 0);
+        cached = new JwtTokenProvider(SECRET, EXPIRATION_MILLIS, TOKENS * 2L);
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = cached.generateToken(User.builder()
+                    .id("user-" + i)
+                    .email("user" + i + "@example.com")
+                    .anonymousName("Quiet Otter " + i)
+                    .avatar("avatar_01")
+                    .role(User.Role.USER)
+                    .securityEpoch(0)
+                    .build());
+            cached.parseToken(tokens[i]);
+        }
+    }
+
+    @Benchmark
+    public UserPrincipal cold() {
+        return authenticate(uncached);
+    }
+
+    @Benchmark
+    public UserPrincipal cached() {
+        return authenticate(cached);
+    }
+
+    private UserPrincipal authenticate(JwtTokenProvider provider) {
+        String token = tokens[next++ & (TOKENS - 1)];
+        return provider.getPrincipalFromClaims(provider.parseToken(token));
+    }
+}
@@ -0,0 +1,134 @@
+package com.anonboard.benchmark;
+
+import com.anonboard.model.Post;
+import com.anonboard.model.PostSummary;
+import com.anonboard.repository.PostSummaryRepository;
+import com.anonboard.service.TrendingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Replays a synthetic week of activity through TrendingService: posts created in order, then
+// views, shares, comments and removals skewed toward recent posts, the way the increment paths
+// call it. replay reports events per second; the read benchmarks time a trending page served
+// from the ranking the full log leaves behind.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TrendingReplayBenchmark {
+
+    private static final int POSTS = 5_000;
+    private static final int EVENTS = 200_000;
+    private static final int TAGS = 30;
+
+    private static final int CREATE = 0;
+    private static final int VIEW = 1;
+    private static final int SHARE = 2;
+    private static final int COMMENT = 3;
+    private static final int REMOVE = 4;
+
+    private final List<Post> posts = new ArrayList<>(POSTS);
+    private final int[] kinds = new int[EVENTS];
+    private final int[] targets = new int[EVENTS];
+
+    private TrendingService replayed;
+    private TrendingService loaded;
+
+    @Setup(Level.Trial)
+    public void generateLog() {
+        Random random = new Random(42);
+        Instant start = Instant.now().minus(Duration.ofDays(7));
+        long spacingMillis = Duration.ofDays(7).toMillis() / POSTS;
+        for (int i = 0; i < POSTS; i++) {
+            posts.add(Post.builder()
+                    .id(String.format("%024x", i))
+                    .title("Post " + i)
+                    .content("Synthetic post body ".repeat(1 + random.nextInt(40)))
+                    .tags(List.of("tag" + random.nextInt(TAGS), "tag" + random.nextInt(TAGS)))
+                    .createdAt(start.plusMillis(i * spacingMillis))
+                    .build());
+        }
+
+        // Posts are created evenly through the log; every other event hits an existing post
+        int created = 0;
+        for (int e = 0; e < EVENTS; e++) {
+            if (created < POSTS && (created == 0 || e >= (long) created * EVENTS / POSTS)) {
+                kinds[e] = CREATE;
+                targets[e] = created++;
+                continue;
+            }
+            // Cubing a uniform draw favours the newest posts, with a long tail of old ones
+            targets[e] = created - 1 - (int) (created * Math.pow(random.nextDouble(), 3));
+            int roll = random.nextInt(1000);
+            kinds[e] = roll < 850 ? VIEW : roll < 920 ? SHARE : roll < 999 ? COMMENT : REMOVE;
+        }
+
+        loaded = newService();
+        replay(loaded);
+    }
+
+    @Setup(Level.Invocation)
+    public void freshService() {
+        replayed = newService();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(EVENTS)
+    public long replay() {
+        replay(replayed);
+        return replayed.getRankedCount(null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<PostSummary> readGlobalFirstPage() {
+        return loaded.getTrending(null, 0, 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<PostSummary> readTagThirdPage() {
+        return loaded.getTrending("tag7", 40, 20);
+    }
+
+    private void replay(TrendingService trending) {
+        for (int e = 0; e < EVENTS; e++) {
+            String postId = posts.get(targets[e]).getId();
+            switch (kinds[e]) {
+                case CREATE -> trending.onCreated(posts.get(targets[e]));
+                case VIEW -> trending.onViews(postId, 1);
+                case SHARE -> trending.onShare(postId);
+                case COMMENT -> trending.onComment(postId, 1);
+                default -> trending.onRemoved(postId);
+            }
+        }
+    }
+
+    private static TrendingService newService() {
+        // Replay never reaches Mongo; persisting and refreshing run on the scheduler only
+        return new TrendingService(null, new PostSummaryRepository(null, null, 280), new SimpleMeterRegistry(),
+                500, 7, 3, 2, 5000);
+    }
+}
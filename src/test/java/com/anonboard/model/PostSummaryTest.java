@@ -0,0 +1,54 @@
+package com.anonboard.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostSummaryTest {
+
+    private static final int EXCERPT_LENGTH = 280;
+
+    @Test
+    void cutsALongPrefixToTheExcerptLength() {
+        // What a search reads: a snippet-scan prefix far longer than the excerpt
+        String content = "word ".repeat(1000);
+        String prefix = content.substring(0, 2000);
+
+        String excerpt = PostSummary.excerpt(prefix, content.length(), EXCERPT_LENGTH);
+
+        assertThat(excerpt).endsWith("…").startsWith("word word");
+        assertThat(excerpt.length()).isLessThanOrEqualTo(EXCERPT_LENGTH + 1);
+        assertThat(excerpt.substring(0, excerpt.length() - 1)).endsWith("word");
+    }
+
+    @Test
+    void fromAndExcerptAgreeOnLongPosts() {
+        String content = "lorem ipsum dolor ".repeat(200);
+        Post post = Post.builder().id("p1").content(content).build();
+
+        PostSummary summary = PostSummary.from(post, EXCERPT_LENGTH);
+
+        assertThat(summary.getContentLength()).isEqualTo(content.length());
+        assertThat(summary.getExcerpt())
+                .isEqualTo(PostSummary.excerpt(content.substring(0, 2000), content.length(), EXCERPT_LENGTH));
+        assertThat(summary.getExcerpt().length()).isLessThanOrEqualTo(EXCERPT_LENGTH + 1);
+    }
+
+    @Test
+    void countsCodePointsNotChars() {
+        // Each emoji is two chars but one code point; the cut must not split a pair
+        String content = "😀".repeat(EXCERPT_LENGTH + 50);
+
+        String excerpt = PostSummary.excerpt(content, content.codePointCount(0, content.length()), EXCERPT_LENGTH);
+
+        String body = excerpt.substring(0, excerpt.length() - 1);
+        assertThat(body.codePointCount(0, body.length())).isEqualTo(EXCERPT_LENGTH);
+        assertThat(Character.isHighSurrogate(body.charAt(body.length() - 1))).isFalse();
+    }
+
+    @Test
+    void returnsShortPostsWhole() {
+        assertThat(PostSummary.excerpt("short post", 10, EXCERPT_LENGTH)).isEqualTo("short post");
+        assertThat(PostSummary.excerpt(null, 0, EXCERPT_LENGTH)).isEmpty();
+    }
+}
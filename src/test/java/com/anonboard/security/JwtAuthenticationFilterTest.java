@@ -0,0 +1,140 @@
+package com.anonboard.security;
+
+import com.anonboard.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hmac-sha-256-signing";
+    private static final long EXPIRATION_MILLIS = 3_600_000;
+
+    private final JwtTokenProvider tokenProvider = new JwtTokenProvider(SECRET, EXPIRATION_MILLIS, 100);
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private final TokenRevocationRegistry revocations =
+            new TokenRevocationRegistry(mock(MongoTemplate.class), tokenProvider, 5000);
+    private final JwtAuthenticationFilter filter =
+            new JwtAuthenticationFilter(tokenProvider, userDetailsService, revocations);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void parsesClaimsIntoPrincipalWithoutLoadingUser() throws Exception {
+        String token = tokenProvider.generateToken(user("u1", User.Role.MODERATOR, 0));
+
+        Authentication authentication = authenticate(token);
+
+        assertThat(authentication).isNotNull();
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        assertThat(principal.getId()).isEqualTo("u1");
+        assertThat(principal.getUsername()).isEqualTo("u1@example.com");
+        assertThat(principal.getUser().getAnonymousName()).isEqualTo("Quiet Otter");
+        assertThat(principal.getUser().getAvatar()).isEqualTo("avatar_07");
+        assertThat(principal.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_MODERATOR");
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void parsesEachTokenOnce() {
+        String token = tokenProvider.generateToken(user("u1", User.Role.USER, 0));
+
+        Claims first = tokenProvider.parseToken(token);
+        Claims second = tokenProvider.parseToken(token);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isSameAs(first);
+        assertThat(tokenProvider.getEpoch(first)).isZero();
+    }
+
+    @Test
+    void rejectsTokensOlderThanTheRevokedEpoch() throws Exception {
+        String before = tokenProvider.generateToken(user("u2", User.Role.USER, 3));
+        String after = tokenProvider.generateToken(user("u2", User.Role.USER, 4));
+
+        revocations.revoke("u2", 4);
+
+        assertThat(authenticate(before)).isNull();
+        assertThat(authenticate(after)).isNotNull();
+    }
+
+    @Test
+    void revocationOnlyAffectsThatUser() throws Exception {
+        revocations.revoke("u3", 1);
+
+        assertThat(authenticate(tokenProvider.generateToken(user("u4", User.Role.USER, 0)))).isNotNull();
+    }
+
+    @Test
+    void legacyTokenWithoutClaimsFallsBackToUserLookup() throws Exception {
+        String legacy = Jwts.builder()
+                .subject("legacy@example.com")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + EXPIRATION_MILLIS))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        UserPrincipal stored = new UserPrincipal(user("legacy", User.Role.USER, 0));
+        when(userDetailsService.loadUserByUsername("legacy@example.com")).thenReturn(stored);
+
+        Authentication authentication = authenticate(legacy);
+
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getPrincipal()).isSameAs(stored);
+        verify(userDetailsService).loadUserByUsername("legacy@example.com");
+    }
+
+    @Test
+    void ignoresTamperedAndExpiredTokens() throws Exception {
+        String token = tokenProvider.generateToken(user("u5", User.Role.USER, 0));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String expired = new JwtTokenProvider(SECRET, -1000, 100).generateToken(user("u5", User.Role.USER, 0));
+
+        assertThat(authenticate(tampered)).isNull();
+        assertThat(authenticate(expired)).isNull();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // The chain always continues; only the security context differs
+        assertThat(chain.getRequest()).isSameAs(request);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static User user(String id, User.Role role, long epoch) {
+        return User.builder()
+                .id(id)
+                .email(id + "@example.com")
+                .anonymousName("Quiet Otter")
+                .avatar("avatar_07")
+                .role(role)
+                .securityEpoch(epoch)
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.anonboard.service;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentVersionServiceTest {
+
+    private final ContentVersionService versions = new ContentVersionService(1000, 30, 0);
+    private WebServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void issuesWeakValidators() {
+        assertThat(versions.feedEtag("u1", "sort=latest")).startsWith("W/\"f");
+        assertThat(versions.jobsEtag(null)).startsWith("W/\"j");
+        assertThat(versions.jobEtag("job-1")).startsWith("W/\"j");
+    }
+
+    @Test
+    void largeFeedIsGzippedWithItsEtag() throws Exception {
+        String etag = versions.feedEtag("u1", "sort=latest");
+        String body = feedBody();
+        startServer(etag, body);
+
+        HttpResponse<byte[]> response = get();
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(response.headers().firstValue("ETag")).hasValue(etag);
+        assertThat(gunzip(response.body())).isEqualTo(body);
+    }
+
+    @Test
+    void strongEtagWouldDisableCompression() throws Exception {
+        startServer("\"f1-abc\"", feedBody());
+
+        HttpResponse<byte[]> response = get();
+
+        assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+    }
+
+    // Serves a fixed JSON body with the given ETag, behind the compression settings in application.yml
+    private void startServer(String etag, String body) throws IOException {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.setCompression(configuredCompression());
+        factory.addInitializers(context -> context.addServlet("feed", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("application/json");
+                response.setHeader("ETag", etag);
+                response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }).addMapping("/api/posts"));
+        server = factory.getWebServer();
+        server.start();
+    }
+
+    private HttpResponse<byte[]> get() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/api/posts"))
+                .header("Accept-Encoding", "gzip")
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static Compression configuredCompression() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yml"))
+                .forEach(environment.getPropertySources()::addLast);
+        return Binder.get(environment).bind("server.compression", Compression.class).get();
+    }
+
+    private static String feedBody() {
+        StringBuilder json = new StringBuilder("{\"success\":true,\"data\":{\"content\":[");
+        for (int i = 0; i < 20; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"id\":\"p").append(i).append("\",\"title\":\"Post ").append(i)
+                    .append("\",\"excerpt\":\"").append("lorem ipsum ".repeat(20)).append("\"}");
+        }
+        return json.append("]}}").toString();
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.anonboard.service;
+
+import com.anonboard.model.OutboundEmail;
+import com.anonboard.repository.OutboundEmailRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxWorkerTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP.dynamicPort());
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private EmailOutboxWorker worker;
+
+    @BeforeEach
+    void acknowledgeWrites() {
+        whenUpdated().thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @AfterEach
+    void stopWorker() throws InterruptedException {
+        if (worker != null) {
+            worker.stop();
+        }
+    }
+
+    @Test
+    void deliversClaimedEmailAndMarksItSent() throws Exception {
+        whenClaimed().thenReturn(email("alice@example.com", "Code: 123456"), null);
+
+        worker = startWorker(greenMail.getSmtp().getPort());
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+        MimeMessage received = greenMail.getReceivedMessages()[0];
+        assertThat(received.getAllRecipients()[0].toString()).isEqualTo("alice@example.com");
+        assertThat(received.getSubject()).isEqualTo("Code: 123456");
+
+        assertThat(statusUpdate().get("status")).isEqualTo(OutboundEmail.Status.SENT);
+    }
+
+    @Test
+    void keepsRunningAfterTransientClaimFailure() {
+        whenClaimed()
+                .thenThrow(new DataAccessResourceFailureException("Mongo unreachable"))
+                .thenThrow(new DataAccessResourceFailureException("Mongo unreachable"))
+                .thenReturn(email("bob@example.com", "Code: 654321"), null);
+
+        worker = startWorker(greenMail.getSmtp().getPort());
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+        assertThat(statusUpdate().get("status")).isEqualTo(OutboundEmail.Status.SENT);
+    }
+
+    @Test
+    void schedulesRetryWhenSmtpIsUnreachable() throws IOException {
+        whenClaimed().thenReturn(email("carol@example.com", "Code: 000000"), null);
+
+        worker = startWorker(unusedPort());
+
+        Document set = statusUpdate();
+        assertThat(set.get("status")).isEqualTo(OutboundEmail.Status.PENDING);
+        assertThat((Instant) set.get("nextAttemptAt")).isAfter(Instant.now());
+        assertThat(statusWrites().get(0).get("$inc", Document.class).get("attempts")).isEqualTo(1);
+    }
+
+    @Test
+    void skipsEmailWhoseLeaseWasTakenOver() throws Exception {
+        whenClaimed().thenReturn(email("dave@example.com", "Code: 111111"), null);
+        whenUpdated().thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        worker = startWorker(greenMail.getSmtp().getPort());
+
+        verify(mongoTemplate, timeout(5000)).updateFirst(any(Query.class), any(UpdateDefinition.class),
+                eq(OutboundEmail.class));
+        Thread.sleep(300);
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
+    @Test
+    void doesNotRequeueADeliveredEmailWhenRecordingItFails() throws Exception {
+        whenClaimed().thenReturn(email("erin@example.com", "Code: 222222"), null);
+        whenUpdated()
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null))
+                .thenThrow(new DataAccessResourceFailureException("Mongo unreachable"))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        worker = startWorker(greenMail.getSmtp().getPort());
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+        Thread.sleep(300);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(statusUpdates()).extracting(set -> set.get("status"))
+                .containsExactly(OutboundEmail.Status.SENT);
+    }
+
+    private OngoingStubbing<UpdateResult> whenUpdated() {
+        return when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(OutboundEmail.class)));
+    }
+
+    private OngoingStubbing<OutboundEmail> whenClaimed() {
+        return when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(OutboundEmail.class)));
+    }
+
+    // The $set of the first status write (markSent or markFailed), after the lease renewal
+    private Document statusUpdate() {
+        verify(mongoTemplate, timeout(5000).atLeast(2)).updateFirst(any(Query.class), any(UpdateDefinition.class),
+                eq(OutboundEmail.class));
+        return statusUpdates().get(0);
+    }
+
+    private List<Document> statusUpdates() {
+        return statusWrites().stream().map(update -> update.get("$set", Document.class)).toList();
+    }
+
+    // Every update that set a status, leaving out lease renewals
+    private List<Document> statusWrites() {
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, atLeast(0)).updateFirst(any(Query.class), update.capture(), eq(OutboundEmail.class));
+        return update.getAllValues().stream()
+                .map(UpdateDefinition::getUpdateObject)
+                .filter(written -> written.get("$set", Document.class).containsKey("status"))
+                .toList();
+    }
+
+    private EmailOutboxWorker startWorker(int smtpPort) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtpPort);
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.connectiontimeout", "2000");
+        properties.setProperty("mail.smtp.timeout", "2000");
+        mailSender.setJavaMailProperties(properties);
+
+        EmailOutboxWorker started = new EmailOutboxWorker(mongoTemplate, mock(OutboundEmailRepository.class),
+                mailSender, new SimpleMeterRegistry(), 1, 20, 3, 20, 60000, 2000, 300000);
+        started.start();
+        return started;
+    }
+
+    private static OutboundEmail email(String to, String subject) {
+        return OutboundEmail.builder()
+                .id("email-1")
+                .to(to)
+                .subject(subject)
+                .htmlBody("<p>" + subject + "</p>")
+                .status(OutboundEmail.Status.SENDING)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
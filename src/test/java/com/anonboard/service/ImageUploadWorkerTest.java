@@ -0,0 +1,117 @@
+package com.anonboard.service;
+
+import com.anonboard.model.ImageAsset;
+import com.anonboard.model.Post;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageUploadWorkerTest {
+
+    @TempDir
+    Path stagingDir;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ImageProcessingService imageProcessing = mock(ImageProcessingService.class);
+    private final TrendingService trendingService = mock(TrendingService.class);
+    private ImageUploadWorker worker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        worker = new ImageUploadWorker(mock(ImageService.class), imageProcessing, mongoTemplate, trendingService,
+                mock(ContentVersionService.class), new SimpleMeterRegistry(), stagingDir.toString(),
+                1, 4, 1, 0, 120000);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Post.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        worker.shutdown();
+    }
+
+    @Test
+    void sweepTakesOverALapsedUploadWithoutWaitingForARestart() throws Exception {
+        Files.writeString(stagingDir.resolve("p1"), "image");
+        ImageAsset asset = ImageAsset.builder().imageUrl("/full").feedImageUrl("/feed").thumbnailUrl("/thumb").build();
+        when(imageProcessing.process(stagingDir.resolve("p1"))).thenReturn(asset);
+        when(mongoTemplate.find(any(Query.class), eq(Post.class))).thenReturn(List.of(post("p1")));
+
+        worker.sweepLapsed();
+
+        worker.awaitUpload("p1").get(5, TimeUnit.SECONDS);
+        verify(trendingService).onImageChanged("p1", asset, Post.ImageStatus.READY);
+        assertThat(stagingDir.resolve("p1")).doesNotExist();
+    }
+
+    @Test
+    void periodicSweepOnlyClaimsLapsedLeases() {
+        when(mongoTemplate.find(any(Query.class), eq(Post.class))).thenReturn(List.of());
+
+        worker.sweepLapsed();
+        worker.resumePending();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).find(queries.capture(), eq(Post.class));
+        // A live lease held by this instance may belong to an upload a request is still submitting
+        assertThat(ownerCriteria(queries.getAllValues().get(0))).isEmpty();
+        assertThat(ownerCriteria(queries.getAllValues().get(1))).containsExactly(worker.getOwner());
+    }
+
+    @Test
+    void sweepSkipsUploadsStillRunningHere() throws Exception {
+        Files.writeString(stagingDir.resolve("p1"), "image");
+        when(imageProcessing.process(stagingDir.resolve("p1"))).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return ImageAsset.builder().imageUrl("/full").build();
+        });
+        when(mongoTemplate.find(any(Query.class), eq(Post.class))).thenReturn(List.of(post("p1")));
+
+        worker.sweepLapsed();
+        worker.sweepLapsed();
+
+        verify(imageProcessing, timeout(2000)).process(stagingDir.resolve("p1"));
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).find(queries.capture(), eq(Post.class));
+        Document running = queries.getAllValues().get(1).getQueryObject().get("_id", Document.class);
+        assertThat(running.getList("$nin", String.class)).containsExactly("p1");
+        worker.awaitUpload("p1").get(5, TimeUnit.SECONDS);
+        verify(trendingService, never()).onImageChanged(eq("p1"), eq(null), any());
+    }
+
+    private static List<Object> ownerCriteria(Query query) {
+        return query.getQueryObject().getList("$or", Document.class).stream()
+                .filter(criteria -> criteria.containsKey("imageOwner"))
+                .map(criteria -> criteria.get("imageOwner"))
+                .toList();
+    }
+
+    private static Post post(String id) {
+        Post post = new Post();
+        post.setId(id);
+        return post;
+    }
+}
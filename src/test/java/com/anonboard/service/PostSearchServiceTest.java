@@ -0,0 +1,90 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Post;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostSearchServiceTest {
+
+    private static final long OVERLAP_MILLIS = 5000;
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    // What Mongo holds; each poll returns those updated after the query's lower bound
+    private final List<Post> stored = new ArrayList<>();
+    private PostSearchService search;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.stream(any(Query.class), eq(Post.class))).thenAnswer(invocation -> {
+            Instant from = (Instant) ((Document) invocation.<Query>getArgument(0)
+                    .getQueryObject().get("updatedAt")).get("$gt");
+            return new ArrayList<>(stored).stream().filter(post -> post.getUpdatedAt().isAfter(from));
+        });
+        search = new PostSearchService(mongoTemplate, new SimpleMeterRegistry(),
+                dir.resolve("posts.idx").toString(), 0.25, OVERLAP_MILLIS);
+    }
+
+    @Test
+    void pollsIndexEachVersionOnce() {
+        stored.add(post("p1", "kotlin coroutines", NOW));
+        stored.add(post("p2", "java records", NOW));
+
+        assertThat(search.catchUp()).isEqualTo(2);
+        assertThat(search.catchUp()).isZero();
+        assertThat(search.search("kotlin", 0, 10).postIds()).containsExactly("p1");
+    }
+
+    @Test
+    void picksUpWritesCommittedBehindTheWatermark() {
+        stored.add(post("p1", "kotlin coroutines", NOW));
+        search.catchUp();
+
+        // Saved on another instance whose clock is behind, or committed late
+        stored.add(post("p2", "kotlin flows", NOW.minusMillis(2000)));
+
+        assertThat(search.catchUp()).isEqualTo(1);
+        assertThat(search.search("kotlin", 0, 10).postIds()).containsExactlyInAnyOrder("p1", "p2");
+    }
+
+    @Test
+    void reindexesANewVersionInsideTheWindow() {
+        stored.add(post("p1", "kotlin coroutines", NOW));
+        search.catchUp();
+
+        stored.set(0, post("p1", "scala actors", NOW.plusMillis(1)));
+
+        assertThat(search.catchUp()).isEqualTo(1);
+        assertThat(search.search("kotlin", 0, 10).postIds()).isEmpty();
+        assertThat(search.search("scala", 0, 10).postIds()).containsExactly("p1");
+    }
+
+    private static Post post(String id, String title, Instant updatedAt) {
+        return Post.builder()
+                .id(id)
+                .title(title)
+                .content("")
+                .tags(List.of())
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,193 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Post;
+import com.anonboard.model.PostSummary;
+import com.anonboard.repository.PostSummaryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrendingServiceTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TrendingService trending = new TrendingService(mongoTemplate,
+            new PostSummaryRepository(mongoTemplate, null, 280), new SimpleMeterRegistry(), 3, 7, 3, 2, 5000);
+
+    @Test
+    void ranksByEngagementWithinTheSameHour() {
+        trending.onCreated(post("a", NOW, 10));
+        trending.onCreated(post("b", NOW, 1000));
+        trending.onCreated(post("c", NOW, 100));
+
+        assertThat(ids(trending.getTrending(null, 0, 3))).containsExactly("b", "c", "a");
+    }
+
+    @Test
+    void newerPostsOutrankOlderOnesWithEqualEngagement() {
+        trending.onCreated(post("old", NOW.minus(2, ChronoUnit.DAYS), 50));
+        trending.onCreated(post("new", NOW, 50));
+
+        assertThat(ids(trending.getTrending(null, 0, 2))).containsExactly("new", "old");
+    }
+
+    @Test
+    void breaksScoreTiesByPostId() {
+        trending.onCreated(post("b", NOW, 5));
+        trending.onCreated(post("a", NOW, 5));
+
+        assertThat(ids(trending.getTrending(null, 0, 2))).containsExactly("a", "b");
+    }
+
+    @Test
+    void weighsSharesAndCommentsAboveViews() {
+        trending.onCreated(post("viewed", NOW, 0));
+        trending.onCreated(post("shared", NOW, 0));
+        trending.onCreated(post("commented", NOW, 0));
+        trending.onViews("viewed", 5);
+        trending.onShare("shared");
+        trending.onShare("shared");
+        trending.onComment("commented", 2);
+
+        // 2 shares x 3 = 6 beats 5 views beats 2 comments x 2 = 4
+        assertThat(ids(trending.getTrending(null, 0, 3))).containsExactly("shared", "viewed", "commented");
+    }
+
+    @Test
+    void reranksOnEngagement() {
+        trending.onCreated(post("a", NOW, 100));
+        trending.onCreated(post("b", NOW, 10));
+
+        trending.onViews("b", 1000);
+
+        assertThat(ids(trending.getTrending(null, 0, 2))).containsExactly("b", "a");
+    }
+
+    @Test
+    void keepsOnlyTheTopCapacityAndSignalsFallbackBeyondIt() {
+        trending.onCreated(post("a", NOW, 1));
+        trending.onCreated(post("b", NOW, 10));
+        trending.onCreated(post("c", NOW, 100));
+        trending.onCreated(post("d", NOW, 1000));
+
+        assertThat(ids(trending.getTrending(null, 0, 3))).containsExactly("d", "c", "b");
+        // The page reaches past the in-memory window, so the caller falls back to Mongo
+        assertThat(trending.getTrending(null, 2, 2)).isNull();
+        assertThat(trending.getRankedCount(null)).isEqualTo(4);
+    }
+
+    @Test
+    void refillsFromTrackedPostsWhenOneIsRemoved() {
+        trending.onCreated(post("a", NOW, 1));
+        trending.onCreated(post("b", NOW, 10));
+        trending.onCreated(post("c", NOW, 100));
+        trending.onCreated(post("d", NOW, 1000));
+
+        trending.onRemoved("c");
+
+        assertThat(ids(trending.getTrending(null, 0, 3))).containsExactly("d", "b", "a");
+    }
+
+    @Test
+    void ranksEachTagSeparately() {
+        trending.onCreated(post("a", NOW, 1000, "java"));
+        trending.onCreated(post("b", NOW, 100, "java", "spring"));
+        trending.onCreated(post("c", NOW, 10, "spring"));
+
+        assertThat(ids(trending.getTrending("java", 0, 3))).containsExactly("a", "b");
+        assertThat(ids(trending.getTrending("spring", 0, 3))).containsExactly("b", "c");
+        assertThat(trending.getTrending("kotlin", 0, 3)).isEmpty();
+    }
+
+    @Test
+    void refreshTracksPostsCreatedThroughOtherInstances() {
+        trending.onCreated(post("local", NOW, 10));
+        whenStreamed(summary(post("remote", NOW, 100)));
+
+        trending.refresh();
+
+        assertThat(ids(trending.getTrending(null, 0, 3))).containsExactly("remote", "local");
+    }
+
+    @Test
+    void refreshDropsPostsDeletedThroughOtherInstances() {
+        trending.onCreated(post("a", NOW, 10));
+        trending.onCreated(post("b", NOW, 20));
+        when(mongoTemplate.find(any(Query.class), eq(Post.class))).thenReturn(List.of(post("b", NOW, 20)));
+
+        trending.refresh();
+
+        assertThat(ids(trending.getTrending(null, 0, 3))).containsExactly("a");
+    }
+
+    @Test
+    void refreshTakesEditsButKeepsLocalCounters() {
+        trending.onCreated(post("a", NOW, 10));
+        trending.onCreated(post("b", NOW, 50));
+        trending.onViews("a", 100);
+        PostSummary edited = summary(post("a", NOW, 10));
+        edited.setExcerpt("Edited elsewhere");
+        whenStreamed(edited);
+
+        trending.refresh();
+
+        List<PostSummary> ranked = trending.getTrending(null, 0, 2);
+        assertThat(ids(ranked)).containsExactly("a", "b");
+        assertThat(ranked.get(0).getViewCount()).isEqualTo(110);
+        assertThat(ranked.get(0).getExcerpt()).isEqualTo("Edited elsewhere");
+    }
+
+    @Test
+    void persistsScoresComputedFromStoredCounters() {
+        trending.onCreated(post("a", NOW, 10));
+
+        trending.persistScores();
+
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).updateMulti(any(Query.class), update.capture(), eq(Post.class));
+        // A pipeline over $viewCount etc., not a locally computed number
+        assertThat(update.getValue()).isInstanceOf(AggregationUpdate.class);
+        assertThat(update.getValue().toString()).contains("$viewCount").contains("$log10");
+    }
+
+    private void whenStreamed(PostSummary... posts) {
+        when(mongoTemplate.stream(any(Query.class), eq(PostSummary.class), any()))
+                .thenAnswer(invocation -> Stream.of(posts));
+    }
+
+    private static PostSummary summary(Post post) {
+        return PostSummary.from(post, 280);
+    }
+
+    private static Post post(String id, Instant createdAt, int views, String... tags) {
+        return Post.builder()
+                .id(id)
+                .title("Post " + id)
+                .content("Body of " + id)
+                .tags(List.of(tags))
+                .viewCount(views)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static List<String> ids(List<PostSummary> posts) {
+        return posts.stream().map(PostSummary::getId).toList();
+    }
+}
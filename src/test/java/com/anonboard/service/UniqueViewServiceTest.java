@@ -0,0 +1,98 @@
+package com.anonboard.service;
+
+import com.anonboard.model.PostView;
+import com.anonboard.model.PostViewBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UniqueViewServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final UserOrdinalService userOrdinals = mock(UserOrdinalService.class);
+    // Room for one post, so opening a second evicts the first
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UniqueViewService views =
+            new UniqueViewService(mongoTemplate, userOrdinals, meterRegistry, 1, 50000);
+
+    @Test
+    void failedEvictionIsWrittenByTheNextFlush() throws InterruptedException {
+        when(userOrdinals.ordinalOf(anyString())).thenReturn(7);
+        when(mongoTemplate.insert(any(PostViewBucket.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        views.recordView("p1", "u1");
+        views.recordView("p2", "u1");
+        awaitUnsavedEviction();
+
+        String evicted = evictedPost();
+
+        views.flushDirty();
+
+        ArgumentCaptor<PostViewBucket> written = ArgumentCaptor.forClass(PostViewBucket.class);
+        verify(mongoTemplate, atLeast(2)).insert(written.capture());
+        PostViewBucket retried = written.getAllValues().get(1);
+        assertThat(retried.getPostId()).isEqualTo(evicted);
+        assertThat(retried.getViewers()).isEqualTo(1);
+        assertThat(unsavedEvictions()).isZero();
+    }
+
+    @Test
+    void reopenedPostKeepsViewersItsFailedEvictionHeld() throws InterruptedException {
+        when(userOrdinals.ordinalOf(anyString())).thenReturn(7);
+        when(mongoTemplate.insert(any(PostViewBucket.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThat(views.recordView("p1", "u1")).isEqualTo(1);
+        assertThat(views.recordView("p2", "u1")).isEqualTo(1);
+        awaitUnsavedEviction();
+
+        // Nothing reached Mongo, yet the repeat view is still recognised
+        assertThat(views.recordView(evictedPost(), "u1")).isZero();
+    }
+
+    @Test
+    void migrationMarkerIsUpsertedSoConcurrentStartsAgree() {
+        when(mongoTemplate.collectionExists(PostView.class)).thenReturn(true);
+        when(mongoTemplate.stream(any(Query.class), eq(PostView.class)))
+                .thenReturn(Stream.empty());
+
+        views.migrateLegacyViews();
+
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq("counters"));
+    }
+
+    private String evictedPost() {
+        ArgumentCaptor<PostViewBucket> written = ArgumentCaptor.forClass(PostViewBucket.class);
+        verify(mongoTemplate, atLeast(1)).insert(written.capture());
+        return written.getAllValues().get(0).getPostId();
+    }
+
+    // Evictions run on Caffeine's maintenance executor
+    private void awaitUnsavedEviction() throws InterruptedException {
+        for (int i = 0; i < 200 && unsavedEvictions() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(unsavedEvictions()).isEqualTo(1);
+    }
+
+    private double unsavedEvictions() {
+        return meterRegistry.get("anonboard.views.unsaved-evictions").gauge().value();
+    }
+}
@@ -0,0 +1,60 @@
+package com.anonboard.service;
+
+import com.anonboard.model.User;
+import com.anonboard.repository.UserRepository;
+import com.anonboard.security.CustomUserDetailsService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserCacheService cache = new UserCacheService(userRepository, 100, 60);
+
+    @Test
+    void cachedUsersCarryNoPasswordHash() {
+        when(userRepository.findByEmail("a@example.com")).thenReturn(Optional.of(user("old-hash")));
+
+        assertThat(cache.findByEmail("a@example.com")).get().extracting(User::getPasswordHash).isNull();
+        assertThat(cache.findById("u1")).get().extracting(User::getPasswordHash).isNull();
+        verify(userRepository, times(1)).findByEmail("a@example.com");
+    }
+
+    @Test
+    void callersCannotChangeTheCachedCopy() {
+        when(userRepository.findByEmail("a@example.com")).thenReturn(Optional.of(user("hash")));
+        cache.findByEmail("a@example.com").orElseThrow().setBanned(true);
+
+        User again = cache.findByEmail("a@example.com").orElseThrow();
+
+        assertThat(again.isBanned()).isFalse();
+        assertThat(again).isNotSameAs(cache.findByEmail("a@example.com").orElseThrow());
+    }
+
+    @Test
+    void loginReadsTheCurrentHashPastTheCache() {
+        when(userRepository.findByEmail("a@example.com"))
+                .thenReturn(Optional.of(user("old-hash")), Optional.of(user("new-hash")));
+        CustomUserDetailsService userDetails = new CustomUserDetailsService(cache, userRepository);
+        cache.findByEmail("a@example.com");
+
+        // Reset on another instance: no evict reaches this one
+        assertThat(userDetails.loadUserByUsername("a@example.com").getPassword()).isEqualTo("new-hash");
+    }
+
+    private static User user(String passwordHash) {
+        return User.builder()
+                .id("u1")
+                .email("a@example.com")
+                .passwordHash(passwordHash)
+                .anonymousName("Quiet Otter")
+                .build();
+    }
+}
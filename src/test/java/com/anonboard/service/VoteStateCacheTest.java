@@ -0,0 +1,97 @@
+package com.anonboard.service;
+
+import com.anonboard.model.Vote;
+import com.anonboard.repository.VoteRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class VoteStateCacheTest {
+
+    private static final String USER = "u1";
+
+    private final String up = new ObjectId().toHexString();
+    private final String down = new ObjectId().toHexString();
+    private final String none = new ObjectId().toHexString();
+
+    private final VoteRepository voteRepository = mock(VoteRepository.class);
+    private final VoteStateCache cache = new VoteStateCache(voteRepository, 100, 5000, 120);
+
+    @Test
+    void loadsMissingVotesInOneQuery() {
+        stubVotes(List.of(up, down, none), vote(up, 1), vote(down, -1));
+
+        Map<String, Integer> states = cache.getVoteStates(USER, List.of(up, down, none));
+
+        assertThat(states).containsExactly(Map.entry(up, 1), Map.entry(down, -1), Map.entry(none, 0));
+        verify(voteRepository).findByUserIdAndTargetTypeAndTargetIdIn(USER, Vote.TargetType.COMMENT,
+                List.of(up, down, none));
+    }
+
+    @Test
+    void servesRepeatLookupsIncludingNoVoteFromTheCache() {
+        stubVotes(List.of(up, none), vote(up, 1));
+        cache.getVoteStates(USER, List.of(up, none));
+
+        Map<String, Integer> votes = cache.getVotes(USER, List.of(none, up));
+
+        assertThat(votes).containsExactly(Map.entry(up, 1));
+        verify(voteRepository).findByUserIdAndTargetTypeAndTargetIdIn(any(), any(), anyList());
+        verifyNoMoreInteractions(voteRepository);
+    }
+
+    @Test
+    void queriesOnlyTheIdsNotYetKnown() {
+        stubVotes(List.of(up), vote(up, 1));
+        stubVotes(List.of(down), vote(down, -1));
+        cache.getVoteStates(USER, List.of(up));
+
+        assertThat(cache.getVoteStates(USER, List.of(up, down))).containsExactly(Map.entry(up, 1), Map.entry(down, -1));
+        verify(voteRepository).findByUserIdAndTargetTypeAndTargetIdIn(USER, Vote.TargetType.COMMENT, List.of(down));
+    }
+
+    @Test
+    void writesVotesThroughForCachedUsers() {
+        stubVotes(List.of(up, none), vote(up, 1));
+        cache.getVoteStates(USER, List.of(up, none));
+
+        cache.onVote(USER, up, null);
+        cache.onVote(USER, none, -1);
+
+        assertThat(cache.getVoteStates(USER, List.of(up, none))).containsExactly(Map.entry(up, 0), Map.entry(none, -1));
+        assertThat(cache.getVote(USER, up)).isNull();
+        verify(voteRepository).findByUserIdAndTargetTypeAndTargetIdIn(any(), any(), anyList());
+    }
+
+    @Test
+    void anonymousViewersHaveNoVotes() {
+        assertThat(cache.getVoteStates(null, List.of(up))).isEmpty();
+        verify(voteRepository, never()).findByUserIdAndTargetTypeAndTargetIdIn(anyString(), any(), anyList());
+    }
+
+    private void stubVotes(List<String> requested, Vote... votes) {
+        when(voteRepository.findByUserIdAndTargetTypeAndTargetIdIn(USER, Vote.TargetType.COMMENT, requested))
+                .thenReturn(List.of(votes));
+    }
+
+    private static Vote vote(String commentId, int voteType) {
+        return Vote.builder()
+                .userId(USER)
+                .targetType(Vote.TargetType.COMMENT)
+                .targetId(commentId)
+                .voteType(voteType)
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.anonboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTest {
+
+    @Test
+    void neverUndercounts() {
+        CountMinSketch sketch = CountMinSketch.withErrorBounds(0.01, 0.01);
+        Map<String, Long> exact = skewedCounts(sketch, 2000);
+
+        exact.forEach((key, count) -> assertThat(sketch.estimate(key)).as(key).isGreaterThanOrEqualTo(count));
+    }
+
+    @Test
+    void overcountsWithinEpsilonOfTheTotalForAlmostAllKeys() {
+        double epsilon = 0.01;
+        double delta = 0.01;
+        CountMinSketch sketch = CountMinSketch.withErrorBounds(epsilon, delta);
+        Map<String, Long> exact = skewedCounts(sketch, 2000);
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+
+        long outside = exact.entrySet().stream()
+                .filter(e -> sketch.estimate(e.getKey()) - e.getValue() > epsilon * total)
+                .count();
+        // Each key breaks the bound with probability at most delta; allow some slack
+        assertThat((double) outside / exact.size()).isLessThanOrEqualTo(3 * delta);
+    }
+
+    @Test
+    void addReturnsTheUpdatedEstimate() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+
+        assertThat(sketch.add("java", 3)).isGreaterThanOrEqualTo(3);
+        assertThat(sketch.add("java", 2)).isEqualTo(sketch.estimate("java")).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    void unseenKeysEstimateZeroUntilCollisionsAndClearResets() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        assertThat(sketch.estimate("never-added")).isZero();
+
+        sketch.add("spring", 10);
+        sketch.clear();
+
+        assertThat(sketch.estimate("spring")).isZero();
+    }
+
+    // Key i gets about 1000 / (i + 1) counts, so a few keys are heavy and most are light
+    private static Map<String, Long> skewedCounts(CountMinSketch sketch, int keys) {
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < keys; i++) {
+            String key = "tag-" + i;
+            long count = Math.max(1, 1000 / (i + 1));
+            sketch.add(key, count);
+            exact.put(key, count);
+        }
+        return exact;
+    }
+}
@@ -0,0 +1,42 @@
+package com.anonboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LevenshteinTest {
+
+    @Test
+    void computesEditDistanceWithinTheCutoff() {
+        assertThat(Levenshtein.distance("kitten", "sitting", 3)).isEqualTo(3);
+        assertThat(Levenshtein.distance("javascript", "javscript", 2)).isEqualTo(1);
+        assertThat(Levenshtein.distance("spring", "sprnig", 2)).isEqualTo(2);
+        assertThat(Levenshtein.distance("same", "same", 0)).isZero();
+    }
+
+    @Test
+    void handlesEmptyStrings() {
+        assertThat(Levenshtein.distance("", "", 1)).isZero();
+        assertThat(Levenshtein.distance("", "ab", 2)).isEqualTo(2);
+        assertThat(Levenshtein.distance("abc", "", 3)).isEqualTo(3);
+    }
+
+    @Test
+    void returnsOnePastTheCutoffWhenExceeded() {
+        assertThat(Levenshtein.distance("kitten", "sitting", 2)).isEqualTo(3);
+        assertThat(Levenshtein.distance("kitten", "sitting", 1)).isEqualTo(2);
+        assertThat(Levenshtein.distance("abc", "xyz", 0)).isEqualTo(1);
+    }
+
+    @Test
+    void cutsOffOnLengthDifferenceAlone() {
+        assertThat(Levenshtein.distance("go", "golang-tutorial", 3)).isEqualTo(4);
+    }
+
+    @Test
+    void isSymmetric() {
+        assertThat(Levenshtein.distance("python", "pyhton", 3))
+                .isEqualTo(Levenshtein.distance("pyhton", "python", 3))
+                .isEqualTo(2);
+    }
+}
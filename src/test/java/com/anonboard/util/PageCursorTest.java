@@ -0,0 +1,78 @@
+package com.anonboard.util;
+
+import com.anonboard.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    private static final String ID = "65a1f0c2e4b0a1b2c3d4e5f6";
+
+    @Test
+    void roundTripsInstantsAtMillisecondPrecision() {
+        Instant createdAt = Instant.parse("2024-03-01T12:34:56.789Z");
+
+        assertThat(roundTrip(createdAt)).isEqualTo(new PageCursor(createdAt, ID));
+    }
+
+    @Test
+    void roundTripsFractionalScoresBitForBit() {
+        double[] scores = { 38170.123456789012, -0.0, 1e-300, Double.MAX_VALUE, -42.5 };
+        for (double score : scores) {
+            PageCursor decoded = roundTrip(score);
+            assertThat(Double.doubleToLongBits((Double) decoded.sortValue()))
+                    .as("score %s", score)
+                    .isEqualTo(Double.doubleToLongBits(score));
+        }
+    }
+
+    @Test
+    void widensFloatsToTheSameDouble() {
+        assertThat(roundTrip(0.1f).sortValue()).isEqualTo((double) 0.1f);
+    }
+
+    @Test
+    void roundTripsIntegralNumbersAsLongs() {
+        assertThat(roundTrip(1234).sortValue()).isEqualTo(1234L);
+        assertThat(roundTrip(Long.MIN_VALUE).sortValue()).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    void roundTripsStringsContainingTheSeparator() {
+        assertThat(roundTrip("a|b:c").sortValue()).isEqualTo("a|b:c");
+    }
+
+    @Test
+    void roundTripsMissingSortValues() {
+        assertThat(roundTrip(null)).isEqualTo(new PageCursor(null, ID));
+    }
+
+    @Test
+    void encodesAsUnpaddedUrlSafeBase64() {
+        String encoded = new PageCursor(Instant.ofEpochMilli(1_700_000_000_000L), ID).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        // One layer of base64 only
+        assertThat(new String(Base64.getUrlDecoder().decode(encoded))).isEqualTo("t:1700000000000|" + ID);
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        String unknownType = Base64.getUrlEncoder().encodeToString(("x:1|" + ID).getBytes());
+
+        assertThatThrownBy(() -> PageCursor.decode("not base64!")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(unknownType)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode("")).isInstanceOf(BadRequestException.class);
+    }
+
+    private static PageCursor roundTrip(Object sortValue) {
+        PageCursor decoded = PageCursor.decode(new PageCursor(sortValue, ID).encode());
+        assertThat(decoded.id()).isEqualTo(ID);
+        return decoded;
+    }
+}
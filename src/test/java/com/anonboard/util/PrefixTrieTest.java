@@ -0,0 +1,46 @@
+package com.anonboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefixTrieTest {
+
+    private final PrefixTrie<String> trie = new PrefixTrie<>();
+
+    PrefixTrieTest() {
+        for (String key : new String[] { "jax", "javascript", "java", "go", "golang", "j" }) {
+            trie.put(key, key.toUpperCase());
+        }
+    }
+
+    @Test
+    void returnsMatchesInKeyOrderWithShorterKeysFirst() {
+        assertThat(trie.withPrefix("ja", 10)).containsExactly("JAVA", "JAVASCRIPT", "JAX");
+        assertThat(trie.withPrefix("j", 10)).containsExactly("J", "JAVA", "JAVASCRIPT", "JAX");
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        assertThat(trie.withPrefix("j", 2)).containsExactly("J", "JAVA");
+        assertThat(trie.withPrefix("j", 0)).isEmpty();
+    }
+
+    @Test
+    void emptyPrefixListsEveryKey() {
+        assertThat(trie.withPrefix("", 10)).containsExactly("GO", "GOLANG", "J", "JAVA", "JAVASCRIPT", "JAX");
+    }
+
+    @Test
+    void unknownPrefixMatchesNothing() {
+        assertThat(trie.withPrefix("rust", 10)).isEmpty();
+        assertThat(trie.withPrefix("javaz", 10)).isEmpty();
+    }
+
+    @Test
+    void putReplacesTheValueOfAnExistingKey() {
+        trie.put("go", "Go");
+
+        assertThat(trie.withPrefix("go", 10)).containsExactly("Go", "GOLANG");
+    }
+}
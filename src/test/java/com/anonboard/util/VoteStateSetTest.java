@@ -0,0 +1,98 @@
+package com.anonboard.util;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VoteStateSetTest {
+
+    private static final ObjectId A = new ObjectId("000000000000000000000001");
+    private static final ObjectId B = new ObjectId("7fffffffffffffffffffffff");
+    // High bit set: sorts after B in unsigned order, before it in signed order
+    private static final ObjectId C = new ObjectId("ff0000000000000000000000");
+
+    @Test
+    void storesUpDownAndKnownNoVote() {
+        VoteStateSet set = VoteStateSet.EMPTY.with(Map.of(A, 1, B, -1, C, 0), true);
+
+        assertThat(set.size()).isEqualTo(3);
+        assertThat(set.get(A)).isEqualTo(1);
+        assertThat(set.get(B)).isEqualTo(-1);
+        assertThat(set.get(C)).isZero();
+        assertThat(set.get(new ObjectId())).isNull();
+    }
+
+    @Test
+    void overwriteReplacesExistingVotes() {
+        VoteStateSet set = VoteStateSet.EMPTY.with(Map.of(A, 1, B, -1), true);
+
+        VoteStateSet updated = set.with(Map.of(A, -1, B, 0), true);
+
+        assertThat(updated.get(A)).isEqualTo(-1);
+        assertThat(updated.get(B)).isZero();
+        assertThat(updated.size()).isEqualTo(2);
+    }
+
+    @Test
+    void withoutOverwriteKeepsExistingVotesAndAddsNewOnes() {
+        VoteStateSet set = VoteStateSet.EMPTY.with(Map.of(A, 1), true);
+
+        VoteStateSet updated = set.with(Map.of(A, 0, C, -1), false);
+
+        assertThat(updated.get(A)).isEqualTo(1);
+        assertThat(updated.get(C)).isEqualTo(-1);
+        assertThat(updated.size()).isEqualTo(2);
+    }
+
+    @Test
+    void leavesTheOriginalUnchanged() {
+        VoteStateSet set = VoteStateSet.EMPTY.with(Map.of(A, 1), true);
+
+        set.with(Map.of(A, -1, B, 1), true);
+
+        assertThat(set.size()).isEqualTo(1);
+        assertThat(set.get(A)).isEqualTo(1);
+        assertThat(set.get(B)).isNull();
+        assertThat(VoteStateSet.EMPTY.size()).isZero();
+    }
+
+    @Test
+    void matchesAMapAcrossManyRandomMerges() {
+        Random random = new Random(42);
+        Map<ObjectId, Integer> expected = new HashMap<>();
+        ObjectId[] pool = new ObjectId[300];
+        for (int i = 0; i < pool.length; i++) {
+            byte[] bytes = new byte[12];
+            random.nextBytes(bytes);
+            pool[i] = new ObjectId(bytes);
+        }
+
+        VoteStateSet set = VoteStateSet.EMPTY;
+        for (int round = 0; round < 200; round++) {
+            boolean overwrite = random.nextBoolean();
+            Map<ObjectId, Integer> batch = new HashMap<>();
+            for (int k = random.nextInt(10); k >= 0; k--) {
+                batch.put(pool[random.nextInt(pool.length)], random.nextInt(3) - 1);
+            }
+
+            set = set.with(batch, overwrite);
+            batch.forEach((id, vote) -> {
+                if (overwrite) {
+                    expected.put(id, vote);
+                } else {
+                    expected.putIfAbsent(id, vote);
+                }
+            });
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (ObjectId id : pool) {
+            assertThat(set.get(id)).as(id.toHexString()).isEqualTo(expected.get(id));
+        }
+    }
+}